@@ -7,9 +7,11 @@ import dev.isxander.yacl3.api.Option;
 import dev.isxander.yacl3.api.OptionDescription;
 import dev.isxander.yacl3.api.YetAnotherConfigLib;
 import dev.isxander.yacl3.api.controller.BooleanControllerBuilder;
+import dev.isxander.yacl3.api.controller.EnumControllerBuilder;
 import dev.isxander.yacl3.api.controller.IntegerFieldControllerBuilder;
 import dev.isxander.yacl3.api.controller.StringControllerBuilder;
 import minhcrafters.chess.config.ChessConfig;
+import minhcrafters.chess.game.ai.TranspositionTable;
 import net.minecraft.text.Text;
 
 public class ModMenuImpl implements ModMenuApi {
@@ -42,6 +44,58 @@ public class ModMenuImpl implements ModMenuApi {
                         .build())
                 .category(ConfigCategory.createBuilder()
                         .name(Text.literal("Engine"))
+                        .option(Option.<ChessConfig.EngineType>createBuilder()
+                                .name(Text.literal("Engine Type"))
+                                .description(OptionDescription.of(Text.literal(
+                                        "Which engine plays AI games: UCI runs the external executable, BUILTIN searches inside the server.")))
+                                .binding(
+                                        ChessConfig.EngineType.UCI,
+                                        () -> ChessConfig.HANDLER.instance().engineType,
+                                        newVal -> ChessConfig.HANDLER.instance().engineType = newVal)
+                                .controller(opt -> EnumControllerBuilder.create(opt)
+                                        .enumClass(ChessConfig.EngineType.class))
+                                .build())
+                        .option(Option.<Integer>createBuilder()
+                                .name(Text.literal("Hash Size (MB)"))
+                                .description(OptionDescription.of(Text.literal(
+                                        "Size in MB of the built-in engine's transposition table, shared by every game on the server.")))
+                                .binding(
+                                        64,
+                                        () -> ChessConfig.HANDLER.instance().hashSizeMb,
+                                        newVal -> ChessConfig.HANDLER.instance().hashSizeMb = newVal)
+                                .controller(opt -> IntegerFieldControllerBuilder.create(opt).min(1)
+                                        .max(TranspositionTable.MAX_SIZE_MB))
+                                .build())
+                        .option(Option.<Integer>createBuilder()
+                                .name(Text.literal("Search Thread Budget"))
+                                .description(OptionDescription.of(Text.literal(
+                                        "Threads the built-in engine may use across all games on the server together.")))
+                                .binding(
+                                        Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+                                        () -> ChessConfig.HANDLER.instance().searchThreadBudget,
+                                        newVal -> ChessConfig.HANDLER.instance().searchThreadBudget = newVal)
+                                .controller(opt -> IntegerFieldControllerBuilder.create(opt).min(1))
+                                .build())
+                        .option(Option.<Integer>createBuilder()
+                                .name(Text.literal("Max Threads Per Search"))
+                                .description(OptionDescription.of(Text.literal(
+                                        "Most threads one built-in engine search may use, if the budget has them free.")))
+                                .binding(
+                                        2,
+                                        () -> ChessConfig.HANDLER.instance().maxThreadsPerSearch,
+                                        newVal -> ChessConfig.HANDLER.instance().maxThreadsPerSearch = newVal)
+                                .controller(opt -> IntegerFieldControllerBuilder.create(opt).min(1))
+                                .build())
+                        .option(Option.<String>createBuilder()
+                                .name(Text.literal("Opening Book Path"))
+                                .description(OptionDescription.of(Text.literal(
+                                        "Path to a Polyglot .bin opening book tried before either engine. Leave empty to disable.")))
+                                .binding(
+                                        "",
+                                        () -> ChessConfig.HANDLER.instance().openingBookPath,
+                                        newVal -> ChessConfig.HANDLER.instance().openingBookPath = newVal)
+                                .controller(StringControllerBuilder::create)
+                                .build())
                         .option(Option.<String>createBuilder()
                                 .name(Text.literal("UCI Engine Path"))
                                 .description(OptionDescription
@@ -52,6 +106,26 @@ public class ModMenuImpl implements ModMenuApi {
                                         newVal -> ChessConfig.HANDLER.instance().uciEnginePath = newVal)
                                 .controller(StringControllerBuilder::create)
                                 .build())
+                        .option(Option.<Integer>createBuilder()
+                                .name(Text.literal("UCI Engine Pool Size"))
+                                .description(OptionDescription.of(Text.literal(
+                                        "Most UCI engine processes running at once, shared by every game on the server.")))
+                                .binding(
+                                        2,
+                                        () -> ChessConfig.HANDLER.instance().uciPoolSize,
+                                        newVal -> ChessConfig.HANDLER.instance().uciPoolSize = newVal)
+                                .controller(opt -> IntegerFieldControllerBuilder.create(opt).min(1))
+                                .build())
+                        .option(Option.<Integer>createBuilder()
+                                .name(Text.literal("UCI Idle Timeout (Seconds)"))
+                                .description(OptionDescription.of(Text.literal(
+                                        "Seconds an idle UCI engine process is kept before it is shut down.")))
+                                .binding(
+                                        60,
+                                        () -> ChessConfig.HANDLER.instance().uciIdleTimeoutSeconds,
+                                        newVal -> ChessConfig.HANDLER.instance().uciIdleTimeoutSeconds = newVal)
+                                .controller(opt -> IntegerFieldControllerBuilder.create(opt).min(1))
+                                .build())
                         .option(Option.<Integer>createBuilder()
                                 .name(Text.literal("Default Time (Seconds)"))
                                 .description(
@@ -0,0 +1,73 @@
+package minhcrafters.chess.benchmark;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import minhcrafters.chess.game.Board;
+import minhcrafters.chess.game.Move;
+import minhcrafters.chess.game.MoveList;
+import minhcrafters.chess.game.Piece;
+import minhcrafters.chess.game.util.FenUtils;
+
+@State(Scope.Thread)
+public class BoardBenchmark {
+    @Param({ "opening", "italian", "kiwipete", "middlegame", "endgame", "rookEndgame" })
+    public String position;
+
+    private Board board;
+    private Piece.PieceColor side;
+    private final MoveList moves = new MoveList();
+
+    @Setup
+    public void setup() {
+        board = FenUtils.parse(Positions.SUITE.get(position));
+        side = board.getSideToMove();
+    }
+
+    @Benchmark
+    public int generateLegalMoves() {
+        board.generateLegalMoves(moves);
+        return moves.size();
+    }
+
+    // The per-square List adapter the UI uses when a piece is selected
+    @Benchmark
+    public void getLegalMoves(Blackhole blackhole) {
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                Piece piece = board.getPiece(row, col);
+                if (piece != null && piece.getColor() == side) {
+                    List<Move> legal = board.getLegalMoves(row, col, side);
+                    blackhole.consume(legal);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int isSquareAttacked() {
+        int attacked = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            if (board.isSquareAttacked(sq, side.opposite())) {
+                attacked++;
+            }
+        }
+        return attacked;
+    }
+
+    @Benchmark
+    public Board copy() {
+        return board.copy();
+    }
+
+    @Benchmark
+    public String getFen() {
+        return FenUtils.getFen(board, 1);
+    }
+}
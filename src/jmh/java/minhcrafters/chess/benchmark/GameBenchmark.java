@@ -0,0 +1,51 @@
+package minhcrafters.chess.benchmark;
+
+import java.util.UUID;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import minhcrafters.chess.game.Board;
+import minhcrafters.chess.game.ChessGame;
+import minhcrafters.chess.game.util.FenUtils;
+
+// Each op builds a game from a copy of the template board, so subtract BoardBenchmark.copy for the move itself
+@State(Scope.Thread)
+public class GameBenchmark {
+    private static final long TIME_TICKS = 600 * 20L;
+
+    private final UUID gameId = UUID.randomUUID();
+    private Board opening;
+    private Board mateInOne;
+    private Board stalemateInOne;
+
+    @Setup
+    public void setup() {
+        opening = new Board();
+        mateInOne = FenUtils.parse(Positions.MATE_IN_ONE);
+        stalemateInOne = FenUtils.parse(Positions.STALEMATE_IN_ONE);
+    }
+
+    @Benchmark
+    public ChessGame.GameState makeMove() {
+        ChessGame game = new ChessGame(gameId, opening.copy(), TIME_TICKS, 0, 1);
+        game.makeMove(1, 4, 3, 4);
+        return game.getState();
+    }
+
+    @Benchmark
+    public ChessGame.GameState makeMoveIntoMate() {
+        ChessGame game = new ChessGame(gameId, mateInOne.copy(), TIME_TICKS, 0, 1);
+        game.makeMove(7, 3, 3, 7);
+        return game.getState();
+    }
+
+    @Benchmark
+    public ChessGame.GameState makeMoveIntoStalemate() {
+        ChessGame game = new ChessGame(gameId, stalemateInOne.copy(), TIME_TICKS, 0, 1);
+        game.makeMove(4, 2, 5, 1);
+        return game.getState();
+    }
+}
@@ -0,0 +1,20 @@
+package minhcrafters.chess.benchmark;
+
+import java.util.Map;
+
+public final class Positions {
+    public static final Map<String, String> SUITE = Map.of(
+            "opening", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "italian", "r1bqk1nr/pppp1ppp/2n5/2b1p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4",
+            "kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "middlegame", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "rookEndgame", "8/8/4k3/3rP3/8/4K3/3R4/8 b - - 0 1");
+
+    // Black to mate with Qh4# and white to stalemate with Qb6
+    public static final String MATE_IN_ONE = "rnbqkbnr/pppp1ppp/8/4p3/6P1/5P2/PPPPP2P/RNBQKBNR b KQkq g3 0 2";
+    public static final String STALEMATE_IN_ONE = "k7/8/8/2Q5/8/8/8/7K w - - 0 1";
+
+    private Positions() {
+    }
+}
@@ -2,6 +2,7 @@ package minhcrafters.chess;
 
 import minhcrafters.chess.command.ChessCommand;
 import minhcrafters.chess.config.ChessConfig;
+import minhcrafters.chess.game.Attacks;
 import minhcrafters.chess.interaction.ChessInteractionHandler;
 import minhcrafters.chess.render.ChessBoardRenderer;
 import net.fabricmc.api.ModInitializer;
@@ -25,6 +26,9 @@ public class Chess implements ModInitializer {
 		// Load config
 		ChessConfig.HANDLER.load();
 
+		// Build move generation tables up front rather than on the first move
+		LOGGER.info("Built attack tables in {} ms", String.format("%.2f", Attacks.getInitTimeNanos() / 1_000_000.0));
+
 		// Initialize renderer
 		renderer = new ChessBoardRenderer();
 
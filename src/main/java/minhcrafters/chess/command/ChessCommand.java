@@ -1,13 +1,26 @@
 package minhcrafters.chess.command;
 
 import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
+import minhcrafters.chess.Chess;
 import minhcrafters.chess.config.ChessConfig;
+import minhcrafters.chess.game.Board;
 import minhcrafters.chess.game.ChessGame;
 import minhcrafters.chess.game.ChessManager;
 import minhcrafters.chess.game.Move;
 import minhcrafters.chess.game.Piece;
+import minhcrafters.chess.game.ai.Bench;
+import minhcrafters.chess.game.ai.ChessEngine;
+import minhcrafters.chess.game.ai.PolyglotBook;
+import minhcrafters.chess.game.ai.SearchEngine;
+import minhcrafters.chess.game.ai.SearchThreads;
+import minhcrafters.chess.game.ai.TranspositionTable;
+import minhcrafters.chess.game.ai.UciEngine;
+import minhcrafters.chess.game.ai.UciEnginePool;
+import minhcrafters.chess.game.util.FenUtils;
+import minhcrafters.chess.game.util.Perft;
 import minhcrafters.chess.render.ChessBoardRenderer;
 import net.minecraft.server.command.CommandManager;
 import net.minecraft.server.command.ServerCommandSource;
@@ -16,9 +29,26 @@ import net.minecraft.server.world.ServerWorld;
 import net.minecraft.text.Text;
 import net.minecraft.util.math.BlockPos;
 
+import java.io.IOException;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 public class ChessCommand {
+    private static final int MAX_PERFT_DEPTH = 7;
+    private static final int MAX_BENCH_DEPTH = 10;
+
+    // One low-priority thread, so perft runs queue up instead of competing with the server tick
+    private static final ExecutorService PERFT_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Chess Perft");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
     private final ChessBoardRenderer renderer;
 
     public ChessCommand(ChessBoardRenderer renderer) {
@@ -32,14 +62,129 @@ public class ChessCommand {
                         .then(CommandManager.literal("ai")
                                 .executes(this::startAiGame))
                         .then(CommandManager.literal("aivsai")
-                                .executes(this::startAiVsAiGame)))
+                                .executes(this::startAiVsAiGame))
+                        .then(CommandManager.literal("fen")
+                                .then(CommandManager.argument("fen", StringArgumentType.greedyString())
+                                        .executes(context -> startGame(context,
+                                                StringArgumentType.getString(context, "fen"))))))
                 .then(CommandManager.literal("join")
                         .then(CommandManager.argument("color", StringArgumentType.word())
                                 .executes(this::joinGame)))
                 .then(CommandManager.literal("end")
                         .executes(this::endGame))
                 .then(CommandManager.literal("list")
-                        .executes(this::listGames)));
+                        .executes(this::listGames))
+                .then(CommandManager.literal("perft")
+                        .requires(source -> source.hasPermissionLevel(2))
+                        .then(CommandManager.literal("parallel")
+                                .then(CommandManager.argument("depth", IntegerArgumentType.integer(1, MAX_PERFT_DEPTH))
+                                        .executes(context -> runPerft(context, null, true))
+                                        .then(CommandManager.argument("fen", StringArgumentType.greedyString())
+                                                .executes(context -> runPerft(context,
+                                                        StringArgumentType.getString(context, "fen"), true)))))
+                        .then(CommandManager.argument("depth", IntegerArgumentType.integer(1, MAX_PERFT_DEPTH))
+                                .executes(context -> runPerft(context, null, false))
+                                .then(CommandManager.argument("fen", StringArgumentType.greedyString())
+                                        .executes(context -> runPerft(context,
+                                                StringArgumentType.getString(context, "fen"), false)))))
+                .then(CommandManager.literal("bench")
+                        .requires(source -> source.hasPermissionLevel(2))
+                        .executes(context -> runBench(context, Bench.DEFAULT_DEPTH))
+                        .then(CommandManager.argument("depth", IntegerArgumentType.integer(1, MAX_BENCH_DEPTH))
+                                .executes(context -> runBench(context,
+                                        IntegerArgumentType.getInteger(context, "depth"))))));
+    }
+
+    // Node totals of the built-in engine on a fixed suite, for comparing search changes
+    private int runBench(CommandContext<ServerCommandSource> context, int depth) {
+        ServerCommandSource source = context.getSource();
+        source.sendFeedback(() -> Text.literal("§7Running search bench to depth " + depth + "..."), false);
+
+        CompletableFuture.supplyAsync(() -> Bench.run(depth), PERFT_EXECUTOR)
+                .whenComplete((result, error) -> source.getServer().execute(() -> {
+                    if (error != null) {
+                        source.sendError(Text.literal("§cBench failed: " + error.getMessage()));
+                        return;
+                    }
+                    for (Map.Entry<String, Long> entry : result.getPerPosition().entrySet()) {
+                        source.sendFeedback(() -> Text.literal("§7" + entry.getKey() + ": §f" + entry.getValue()), false);
+                    }
+                    source.sendFeedback(() -> Text.literal(String.format(
+                            "§aBench(%d): §f%d §7nodes in §f%d ms §7(§f%,d §7nodes/s)",
+                            result.getDepth(), result.getNodes(), result.getElapsedNanos() / 1_000_000,
+                            result.getNodesPerSecond())), false);
+                }));
+        return 1;
+    }
+
+    private int runPerft(CommandContext<ServerCommandSource> context, String fen, boolean parallel) {
+        ServerCommandSource source = context.getSource();
+        int depth = IntegerArgumentType.getInteger(context, "depth");
+
+        Board board;
+        try {
+            board = fen == null ? new Board() : FenUtils.parse(fen);
+        } catch (IllegalArgumentException e) {
+            source.sendError(Text.literal("§cInvalid FEN: " + e.getMessage()));
+            return 0;
+        }
+
+        source.sendFeedback(() -> Text.literal("§7Running perft to depth " + depth + "..."), false);
+
+        if (!parallel) {
+            CompletableFuture.supplyAsync(() -> Perft.divide(board, depth), PERFT_EXECUTOR)
+                    .whenComplete((result, error) -> source.getServer().execute(() -> {
+                        if (error != null) {
+                            source.sendError(Text.literal("§cPerft failed: " + error.getMessage()));
+                            return;
+                        }
+                        sendPerftResult(source, result, true);
+                    }));
+            return 1;
+        }
+
+        // Leave a core free for the server thread
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        CompletableFuture.supplyAsync(() -> {
+            Perft.Result single = Perft.divide(board, depth);
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                return new Perft.Result[] { single, Perft.divideParallel(board, depth, pool) };
+            } finally {
+                pool.shutdown();
+            }
+        }, PERFT_EXECUTOR).whenComplete((results, error) -> source.getServer().execute(() -> {
+            if (error != null) {
+                source.sendError(Text.literal("§cPerft failed: " + error.getMessage()));
+                return;
+            }
+
+            Perft.Result single = results[0];
+            Perft.Result multi = results[1];
+            sendPerftResult(source, multi, true);
+            sendPerftResult(source, single, false);
+
+            if (single.getNodes() != multi.getNodes()) {
+                source.sendError(Text.literal("§cNode counts differ between single and multithreaded runs!"));
+            }
+            double speedUp = (double) single.getElapsedNanos() / Math.max(1, multi.getElapsedNanos());
+            source.sendFeedback(() -> Text.literal(String.format("§aSpeed-up: §f%.2fx §7on §f%d §7threads",
+                    speedUp, multi.getThreads())), false);
+        }));
+
+        return 1;
+    }
+
+    private void sendPerftResult(ServerCommandSource source, Perft.Result result, boolean showDivide) {
+        if (showDivide) {
+            for (Map.Entry<String, Long> entry : result.getDivide().entrySet()) {
+                source.sendFeedback(() -> Text.literal("§7" + entry.getKey() + ": §f" + entry.getValue()), false);
+            }
+        }
+        source.sendFeedback(() -> Text.literal(String.format(
+                "§aPerft(%d) §7[%d thread%s]: §f%d §7nodes in §f%d ms §7(§f%,d §7nodes/s)",
+                result.getDepth(), result.getThreads(), result.getThreads() == 1 ? "" : "s", result.getNodes(),
+                result.getElapsedNanos() / 1_000_000, result.getNodesPerSecond())), false);
     }
 
     private int startAiGame(CommandContext<ServerCommandSource> context) {
@@ -55,15 +200,14 @@ public class ChessCommand {
         
         if (game == null) return 0;
 
-        String enginePath = ChessConfig.HANDLER.instance().uciEnginePath;
-        if (enginePath.isEmpty()) {
-            source.sendError(Text.literal("§cUCI Engine path not configured!"));
+        if (!canCreateEngine(source)) {
             return 0;
         }
 
         manager.assignPlayer(game.getGameId(), UUID.randomUUID(), Piece.PieceColor.BLACK);
         
-        game.addAi(enginePath, Piece.PieceColor.BLACK, (move, g) -> {
+        loadOpeningBook(source, game);
+        game.addAi(createEngine(game), Piece.PieceColor.BLACK, (move, g) -> {
             source.getServer().execute(() -> {
                 ChessManager.GameLocation location = manager.getGameLocation(g.getGameId());
                 if (location != null) {
@@ -91,6 +235,7 @@ public class ChessCommand {
                     if (g.isInCheck()) {
                          source.sendFeedback(() -> Text.literal("§cCheck!"), false);
                     }
+                    sendGameOver(source, g);
                 }
             });
         });
@@ -112,9 +257,7 @@ public class ChessCommand {
         
         if (game == null) return 0;
 
-        String enginePath = ChessConfig.HANDLER.instance().uciEnginePath;
-        if (enginePath.isEmpty()) {
-            source.sendError(Text.literal("§cUCI Engine path not configured!"));
+        if (!canCreateEngine(source)) {
             return 0;
         }
 
@@ -149,18 +292,80 @@ public class ChessCommand {
                     if (g.isInCheck()) {
                          source.sendFeedback(() -> Text.literal("§cCheck!"), false);
                     }
+                    sendGameOver(source, g);
                 }
             });
         };
 
-        game.addAi(enginePath, Piece.PieceColor.WHITE, callback);
-        game.addAi(enginePath, Piece.PieceColor.BLACK, callback);
+        loadOpeningBook(source, game);
+        game.addAi(createEngine(game), Piece.PieceColor.WHITE, callback);
+        game.addAi(createEngine(game), Piece.PieceColor.BLACK, callback);
         
         source.sendFeedback(() -> Text.literal("§aAI vs AI started!"), false);
         return 1;
     }
 
+    private boolean canCreateEngine(ServerCommandSource source) {
+        ChessConfig config = ChessConfig.HANDLER.instance();
+        if (config.engineType == ChessConfig.EngineType.UCI && config.uciEnginePath.isEmpty()) {
+            source.sendError(Text.literal("§cUCI Engine path not configured!"));
+            return false;
+        }
+        return true;
+    }
+
+    private ChessEngine createEngine(ChessGame game) {
+        ChessConfig config = ChessConfig.HANDLER.instance();
+        if (config.engineType == ChessConfig.EngineType.BUILTIN) {
+            return new SearchEngine(TranspositionTable.shared(config.hashSizeMb),
+                    SearchThreads.shared(config.searchThreadBudget), config.maxThreadsPerSearch);
+        }
+        return new UciEngine(UciEnginePool.shared(config.uciEnginePath, config.uciPoolSize,
+                config.uciIdleTimeoutSeconds), game.getGameId());
+    }
+
+    // A missing or unreadable book only costs the instant opening replies, so the game still starts
+    private void loadOpeningBook(ServerCommandSource source, ChessGame game) {
+        try {
+            game.setOpeningBook(PolyglotBook.shared(ChessConfig.HANDLER.instance().openingBookPath));
+        } catch (IOException e) {
+            Chess.LOGGER.warn("Failed to open opening book", e);
+            source.sendError(Text.literal("§cCould not open opening book: " + e.getMessage()));
+        }
+    }
+
+    private void sendGameOver(ServerCommandSource source, ChessGame game) {
+        String message;
+        switch (game.getState()) {
+            case WHITE_WINS:
+                message = "§6§lCheckmate! White wins!";
+                break;
+            case BLACK_WINS:
+                message = "§6§lCheckmate! Black wins!";
+                break;
+            case STALEMATE:
+                message = "§6§lStalemate! Draw!";
+                break;
+            case DRAW_REPETITION:
+                message = "§6§lThreefold repetition! Draw!";
+                break;
+            case DRAW_FIFTY_MOVES:
+                message = "§6§lFifty-move rule! Draw!";
+                break;
+            case DRAW_INSUFFICIENT_MATERIAL:
+                message = "§6§lInsufficient material! Draw!";
+                break;
+            default:
+                return;
+        }
+        source.sendFeedback(() -> Text.literal(message), false);
+    }
+
     private int startGame(CommandContext<ServerCommandSource> context) {
+        return startGame(context, null);
+    }
+
+    private int startGame(CommandContext<ServerCommandSource> context, String fen) {
         ServerCommandSource source = context.getSource();
 
         if (!(source.getEntity() instanceof ServerPlayerEntity player)) {
@@ -184,7 +389,13 @@ public class ChessCommand {
 
         // Create new game
         String worldId = world.getRegistryKey().getValue().toString();
-        ChessGame game = manager.createGame(boardCenter, worldId);
+        ChessGame game;
+        try {
+            game = manager.createGame(boardCenter, worldId, fen);
+        } catch (IllegalArgumentException e) {
+            source.sendError(Text.literal("§cInvalid FEN: " + e.getMessage()));
+            return 0;
+        }
 
         // Assign player as white
         manager.assignPlayer(game.getGameId(), player.getUuid(), Piece.PieceColor.WHITE);
@@ -24,12 +24,37 @@ public class ChessConfig {
     @SerialEntry(comment = "Whether to show what you're doing on the action bar.")
     public boolean showOverlay = true;
 
+    @SerialEntry(comment = "Which engine plays AI games: UCI runs the external executable below, BUILTIN searches inside the server.")
+    public EngineType engineType = EngineType.UCI;
+
+    @SerialEntry(comment = "Size in MB of the built-in engine's transposition table, shared by every game on the server.")
+    public int hashSizeMb = 64;
+
+    @SerialEntry(comment = "Threads the built-in engine may use across all games on the server together.")
+    public int searchThreadBudget = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    @SerialEntry(comment = "Most threads one built-in engine search may use, if the budget has them free.")
+    public int maxThreadsPerSearch = 2;
+
+    @SerialEntry(comment = "Path to a Polyglot .bin opening book tried before either engine. Leave empty to disable.")
+    public String openingBookPath = "";
+
     @SerialEntry(comment = "Path to the external UCI chess engine executable.")
     public String uciEnginePath = "";
 
+    @SerialEntry(comment = "Most UCI engine processes running at once, shared by every game on the server.")
+    public int uciPoolSize = 2;
+
+    @SerialEntry(comment = "Seconds an idle UCI engine process is kept before it is shut down.")
+    public int uciIdleTimeoutSeconds = 60;
+
     @SerialEntry(comment = "Default time in seconds for each player.")
     public int defaultTimeSeconds = 600;
 
     @SerialEntry(comment = "Time increment in seconds per move.")
     public int incrementSeconds = 0;
+
+    public enum EngineType {
+        UCI, BUILTIN
+    }
 }
@@ -0,0 +1,246 @@
+package minhcrafters.chess.game;
+
+public final class Attacks {
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long FILE_H = FILE_A << 7;
+
+    // Found offline by random search; each maps every relevant occupancy of its square
+    // to a table slot without destructive collisions
+    private static final long[] ROOK_MAGICS = {
+            0x2280002040021A80L, 0x0040400020001000L, 0x02000A0080401020L, 0x1100050020100008L,
+            0x0600200428220010L, 0x0100080204000100L, 0x4200280A000120A4L, 0x2080002900045080L,
+            0x0000800030804002L, 0x8837004000208900L, 0x6001001100200040L, 0xC001000900100020L,
+            0x0421000500080012L, 0x0162000408020010L, 0x1801000402000100L, 0x0801000058820900L,
+            0x0800888000400020L, 0x0400810021104000L, 0x0050002000240801L, 0x1840210009001000L,
+            0x0011B10028001500L, 0x8000E80110401420L, 0x0203008080020001L, 0x40000A0018805114L,
+            0x4000400080208001L, 0x10300040C0002000L, 0x0000200080801000L, 0x0820100080800800L,
+            0x0024040080080081L, 0x0800040080020080L, 0x0401C12400100802L, 0x9000010200088464L,
+            0x0400400081800024L, 0x8110002000400040L, 0x8040200084801000L, 0x0841001001000820L,
+            0x0044020800800480L, 0x0002001002000804L, 0x0000420104001048L, 0x0008803040800100L,
+            0x0060400020808000L, 0x4110004620034000L, 0x0420002100410010L, 0x0800120020420008L,
+            0x8068000400808008L, 0x1422000400808002L, 0x8044100201040048L, 0x2008948044020025L,
+            0x0080800040350100L, 0x0602400020100340L, 0x0000408010220200L, 0x4434411189220200L,
+            0x2000100408010100L, 0x2000800400020080L, 0x1881000482004100L, 0x00024100428C0600L,
+            0x0000420100208012L, 0x1001008010400021L, 0x800080118840A202L, 0x0010002108041101L,
+            0x010A001020082406L, 0x000100040028064BL, 0x9000100800A20124L, 0xC080140082244506L
+    };
+
+    private static final long[] BISHOP_MAGICS = {
+            0x1040043840490020L, 0x2603020822088102L, 0x0204484081000044L, 0x0028204040024200L,
+            0x0027104008020800L, 0x0004301808000040L, 0x0004020110082004L, 0x0010660202200A42L,
+            0x8000420808008080L, 0x9000020404088A10L, 0x004011070A020022L, 0x4800022A02000100L,
+            0x1304111040200000L, 0x8240020210042409L, 0xA840010401044000L, 0x8008032202700400L,
+            0x104400E0A00C2910L, 0x0220201292143100L, 0x0130020800282420L, 0x0202002022014056L,
+            0x1002035C12020104L, 0x0902000100420218L, 0x4002000921104200L, 0x2101021080711002L,
+            0x0D20100004508200L, 0x0022022020480210L, 0x0094880010002A21L, 0x1004480004021020L,
+            0x6009040042002100L, 0x0102028802009000L, 0x00810D0206009080L, 0x040E112122010500L,
+            0x0010048440200800L, 0x480402A000081112L, 0x4400288805300320L, 0x0010620081080080L,
+            0x2040010804190040L, 0x00040802200A1010L, 0x8201010110020810L, 0x00020192004A6221L,
+            0x040804053D412001L, 0x0207080144101000L, 0x0450202428001000L, 0x080080A015031803L,
+            0x0001201450100300L, 0x0040011C00211502L, 0x0602105142010100L, 0x8204448201428200L,
+            0x0100840108C00100L, 0x8296290410040148L, 0x0C20104104410020L, 0x01000284A1980800L,
+            0x2000004088221004L, 0x4010085001020601L, 0x030420882A008164L, 0x0108010802084280L,
+            0x000202088411088AL, 0xD100809400821020L, 0x0000000100411002L, 0x00100080082A0800L,
+            0x006A860020420480L, 0x2008002004591600L, 0x421404A028020091L, 0x0041210A02004100L
+    };
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE;
+    private static final long[] BISHOP_TABLE;
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64];
+
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    private static final long INIT_NANOS;
+
+    static {
+        long start = System.nanoTime();
+
+        for (int sq = 0; sq < 64; sq++) {
+            long bit = 1L << sq;
+            KNIGHT[sq] = knightFill(bit);
+            KING[sq] = kingFill(bit);
+            PAWN[Piece.PieceColor.WHITE.ordinal()][sq] = ((bit & ~FILE_A) << 7) | ((bit & ~FILE_H) << 9);
+            PAWN[Piece.PieceColor.BLACK.ordinal()][sq] = ((bit & ~FILE_A) >>> 9) | ((bit & ~FILE_H) >>> 7);
+        }
+
+        ROOK_TABLE = new long[initMasks(ROOK_MASKS, ROOK_SHIFTS, ROOK_OFFSETS, true)];
+        BISHOP_TABLE = new long[initMasks(BISHOP_MASKS, BISHOP_SHIFTS, BISHOP_OFFSETS, false)];
+        fillTable(ROOK_TABLE, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS, true);
+        fillTable(BISHOP_TABLE, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS, false);
+
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b)
+                    continue;
+                long ends = (1L << a) | (1L << b);
+                if ((rook(a, 0L) & (1L << b)) != 0) {
+                    LINE[a][b] = (rook(a, 0L) & rook(b, 0L)) | ends;
+                    BETWEEN[a][b] = rook(a, 1L << b) & rook(b, 1L << a);
+                } else if ((bishop(a, 0L) & (1L << b)) != 0) {
+                    LINE[a][b] = (bishop(a, 0L) & bishop(b, 0L)) | ends;
+                    BETWEEN[a][b] = bishop(a, 1L << b) & bishop(b, 1L << a);
+                }
+            }
+        }
+
+        INIT_NANOS = System.nanoTime() - start;
+    }
+
+    private Attacks() {
+    }
+
+    public static long knight(int sq) {
+        return KNIGHT[sq];
+    }
+
+    public static long king(int sq) {
+        return KING[sq];
+    }
+
+    // Squares a pawn of the given color on sq attacks
+    public static long pawn(Piece.PieceColor color, int sq) {
+        return PAWN[color.ordinal()][sq];
+    }
+
+    public static long bishop(int sq, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSETS[sq]
+                + (int) (((occupied & BISHOP_MASKS[sq]) * BISHOP_MAGICS[sq]) >>> BISHOP_SHIFTS[sq])];
+    }
+
+    public static long rook(int sq, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSETS[sq]
+                + (int) (((occupied & ROOK_MASKS[sq]) * ROOK_MAGICS[sq]) >>> ROOK_SHIFTS[sq])];
+    }
+
+    public static long queen(int sq, long occupied) {
+        return bishop(sq, occupied) | rook(sq, occupied);
+    }
+
+    // Squares strictly between a and b, or 0 when they don't share a rank, file or diagonal
+    public static long between(int a, int b) {
+        return BETWEEN[a][b];
+    }
+
+    // The whole rank, file or diagonal through a and b, or 0 when they aren't aligned
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+
+    // Time spent building all tables when the class was loaded
+    public static long getInitTimeNanos() {
+        return INIT_NANOS;
+    }
+
+    // Relevant occupancy is the slider's rays minus the last square of each ray, since a piece
+    // there can't block anything further. Returns the total table size.
+    private static int initMasks(long[] masks, int[] shifts, int[] offsets, boolean rook) {
+        int size = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            long mask = 0L;
+            long from = 1L << sq;
+            for (int dir = 0; dir < 4; dir++) {
+                mask |= slide(from, 0L, dir, rook) & ~rayEnd(from, dir, rook);
+            }
+            masks[sq] = mask;
+            shifts[sq] = 64 - Long.bitCount(mask);
+            offsets[sq] = size;
+            size += 1 << Long.bitCount(mask);
+        }
+        return size;
+    }
+
+    private static void fillTable(long[] table, long[] masks, long[] magics, int[] shifts, int[] offsets,
+            boolean rook) {
+        for (int sq = 0; sq < 64; sq++) {
+            long mask = masks[sq];
+            long from = 1L << sq;
+            // Carry-rippler walk over every subset of the mask
+            long occupied = 0L;
+            do {
+                long attacks = 0L;
+                for (int dir = 0; dir < 4; dir++) {
+                    attacks |= slide(from, occupied, dir, rook);
+                }
+                // A slider always attacks something, so zero marks a slot not yet written
+                int index = offsets[sq] + (int) ((occupied * magics[sq]) >>> shifts[sq]);
+                if (table[index] != 0 && table[index] != attacks) {
+                    throw new IllegalStateException("Destructive magic collision on square " + sq);
+                }
+                table[index] = attacks;
+                occupied = (occupied - mask) & mask;
+            } while (occupied != 0);
+        }
+    }
+
+    private static long rayEnd(long from, int dir, boolean rook) {
+        long current = from;
+        long last = 0L;
+        while ((current = step(current, dir, rook)) != 0) {
+            last = current;
+        }
+        return last;
+    }
+
+    private static long slide(long from, long occupied, int dir, boolean rook) {
+        long attacks = 0L;
+        long current = from;
+        while ((current = step(current, dir, rook)) != 0) {
+            attacks |= current;
+            if ((current & occupied) != 0)
+                break;
+        }
+        return attacks;
+    }
+
+    // One step along a ray; squares that wrap around to the opposite file are dropped
+    private static long step(long bit, int dir, boolean rook) {
+        if (rook) {
+            switch (dir) {
+                case 0:
+                    return bit << 8;
+                case 1:
+                    return bit >>> 8;
+                case 2:
+                    return (bit << 1) & ~FILE_A;
+                default:
+                    return (bit >>> 1) & ~FILE_H;
+            }
+        }
+        switch (dir) {
+            case 0:
+                return (bit << 9) & ~FILE_A;
+            case 1:
+                return (bit << 7) & ~FILE_H;
+            case 2:
+                return (bit >>> 7) & ~FILE_A;
+            default:
+                return (bit >>> 9) & ~FILE_H;
+        }
+    }
+
+    private static long knightFill(long knights) {
+        long l1 = (knights >>> 1) & ~FILE_H;
+        long l2 = (knights >>> 2) & ~(FILE_H | (FILE_H >>> 1));
+        long r1 = (knights << 1) & ~FILE_A;
+        long r2 = (knights << 2) & ~(FILE_A | (FILE_A << 1));
+        long h1 = l1 | r1;
+        long h2 = l2 | r2;
+        return (h1 << 16) | (h1 >>> 16) | (h2 << 8) | (h2 >>> 8);
+    }
+
+    private static long kingFill(long kings) {
+        long attacks = ((kings << 1) & ~FILE_A) | ((kings >>> 1) & ~FILE_H);
+        long row = kings | attacks;
+        return attacks | (row << 8) | (row >>> 8);
+    }
+}
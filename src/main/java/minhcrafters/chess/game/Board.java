@@ -1,73 +1,182 @@
 package minhcrafters.chess.game;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class Board {
-    private final Piece[][] pieces;
-    private Move lastMove;
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long FILE_H = FILE_A << 7;
+    private static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    private static final int PAWN = 0;
+    private static final int KNIGHT = 1;
+    private static final int BISHOP = 2;
+    private static final int ROOK = 3;
+    private static final int QUEEN = 4;
+    private static final int KING = 5;
+    private static final Piece.PieceType[] PIECE_TYPES = Piece.PieceType.values();
+
+    // Start with -Dchess.debugBoard=true to check incremental state against full scans after every move
+    private static final boolean DEBUG = Boolean.getBoolean("chess.debugBoard");
+
+    // Rights that survive a move touching each square: moving a king or rook off its home
+    // square, or capturing on a rook's home square, clears the matching rights
+    private static final int[] CASTLING_MASKS = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASKS, 15);
+        CASTLING_MASKS[0] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASKS[4] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASKS[7] &= ~WHITE_KINGSIDE;
+        CASTLING_MASKS[56] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASKS[60] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASKS[63] &= ~BLACK_KINGSIDE;
+    }
+
+    // Square index is row * 8 + col, so bit 0 is a1 and bit 63 is h8
+    private final long[][] bitboards;
+    private final long[] occupancy;
+    private long allPieces;
+    private final Piece[] squares;
+    private final int[] kingSquares = { -1, -1 };
+    private final int[][] pieceCounts = new int[2][6];
+    // Running piece-square totals, white minus black, and the game phase they are blended by
+    private int midgameScore;
+    private int endgameScore;
+    private int phase;
+
+    // Squares each side attacks, seen through the other side's king so a king cannot step back
+    // along a checking ray. Built on first use in a position and restored from the undo stack.
+    private final long[] attackMaps = new long[2];
+    private int attackMapsValid;
+    private int lastMove = Move.NONE;
+
+    private Piece.PieceColor sideToMove = Piece.PieceColor.WHITE;
+    private int castlingRights;
+    private int enPassantSquare = -1;
+    // The en passant part of the hash, zero when no pawn can capture onto the square
+    private long enPassantKey;
+    // Plies since the last capture or pawn move
+    private int halfmoveClock;
+    private long hash;
+
+    private UndoState[] undoStack = new UndoState[64];
+    private int undoSize;
 
     public Board() {
-        this.pieces = new Piece[8][8];
-        setupInitialPosition();
+        this(true);
     }
 
-    private Board(Piece[][] pieces, Move lastMove) {
-        this.pieces = new Piece[8][8];
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                if (pieces[row][col] != null) {
-                    this.pieces[row][col] = pieces[row][col].copy();
-                }
-            }
+    private Board(boolean initialPosition) {
+        this.bitboards = new long[2][6];
+        this.occupancy = new long[2];
+        this.squares = new Piece[64];
+        if (initialPosition) {
+            setupInitialPosition();
+            setCastlingRights(WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        }
+    }
+
+    // A board with no pieces, white to move and no castling rights, for setting up positions
+    public static Board empty() {
+        return new Board(false);
+    }
+
+    private Board(Board other) {
+        this.bitboards = new long[2][6];
+        for (int color = 0; color < 2; color++) {
+            System.arraycopy(other.bitboards[color], 0, this.bitboards[color], 0, 6);
+        }
+        this.occupancy = other.occupancy.clone();
+        this.allPieces = other.allPieces;
+        this.kingSquares[0] = other.kingSquares[0];
+        this.kingSquares[1] = other.kingSquares[1];
+        for (int color = 0; color < 2; color++) {
+            System.arraycopy(other.pieceCounts[color], 0, this.pieceCounts[color], 0, 6);
         }
-        this.lastMove = lastMove;
+        this.midgameScore = other.midgameScore;
+        this.endgameScore = other.endgameScore;
+        this.phase = other.phase;
+        this.attackMaps[0] = other.attackMaps[0];
+        this.attackMaps[1] = other.attackMaps[1];
+        this.attackMapsValid = other.attackMapsValid;
+        this.squares = other.squares.clone();
+        this.lastMove = other.lastMove;
+        this.sideToMove = other.sideToMove;
+        this.castlingRights = other.castlingRights;
+        this.enPassantSquare = other.enPassantSquare;
+        this.enPassantKey = other.enPassantKey;
+        this.halfmoveClock = other.halfmoveClock;
+        this.hash = other.hash;
     }
 
     private void setupInitialPosition() {
-        // Black pieces
-        pieces[7][0] = new Piece(Piece.PieceType.ROOK, Piece.PieceColor.BLACK);
-        pieces[7][1] = new Piece(Piece.PieceType.KNIGHT, Piece.PieceColor.BLACK);
-        pieces[7][2] = new Piece(Piece.PieceType.BISHOP, Piece.PieceColor.BLACK);
-        pieces[7][3] = new Piece(Piece.PieceType.QUEEN, Piece.PieceColor.BLACK);
-        pieces[7][4] = new Piece(Piece.PieceType.KING, Piece.PieceColor.BLACK);
-        pieces[7][5] = new Piece(Piece.PieceType.BISHOP, Piece.PieceColor.BLACK);
-        pieces[7][6] = new Piece(Piece.PieceType.KNIGHT, Piece.PieceColor.BLACK);
-        pieces[7][7] = new Piece(Piece.PieceType.ROOK, Piece.PieceColor.BLACK);
-        for (int col = 0; col < 8; col++) {
-            pieces[6][col] = new Piece(Piece.PieceType.PAWN, Piece.PieceColor.BLACK);
-        }
-
-        // White pieces
-        pieces[0][0] = new Piece(Piece.PieceType.ROOK, Piece.PieceColor.WHITE);
-        pieces[0][1] = new Piece(Piece.PieceType.KNIGHT, Piece.PieceColor.WHITE);
-        pieces[0][2] = new Piece(Piece.PieceType.BISHOP, Piece.PieceColor.WHITE);
-        pieces[0][3] = new Piece(Piece.PieceType.QUEEN, Piece.PieceColor.WHITE);
-        pieces[0][4] = new Piece(Piece.PieceType.KING, Piece.PieceColor.WHITE);
-        pieces[0][5] = new Piece(Piece.PieceType.BISHOP, Piece.PieceColor.WHITE);
-        pieces[0][6] = new Piece(Piece.PieceType.KNIGHT, Piece.PieceColor.WHITE);
-        pieces[0][7] = new Piece(Piece.PieceType.ROOK, Piece.PieceColor.WHITE);
+        Piece.PieceType[] backRank = {
+                Piece.PieceType.ROOK, Piece.PieceType.KNIGHT, Piece.PieceType.BISHOP, Piece.PieceType.QUEEN,
+                Piece.PieceType.KING, Piece.PieceType.BISHOP, Piece.PieceType.KNIGHT, Piece.PieceType.ROOK
+        };
+
         for (int col = 0; col < 8; col++) {
-            pieces[1][col] = new Piece(Piece.PieceType.PAWN, Piece.PieceColor.WHITE);
-        }
+            // Black pieces
+            setPiece(7, col, Piece.of(backRank[col], Piece.PieceColor.BLACK));
+            setPiece(6, col, Piece.of(Piece.PieceType.PAWN, Piece.PieceColor.BLACK));
 
-        for (int y = 0; y < 8; y++) {
-            for (int x = 0; x < 8; x++) {
-                System.out.print(pieces[y][x] + " ");
-            }
-            System.out.println();
+            // White pieces
+            setPiece(0, col, Piece.of(backRank[col], Piece.PieceColor.WHITE));
+            setPiece(1, col, Piece.of(Piece.PieceType.PAWN, Piece.PieceColor.WHITE));
         }
     }
 
     public Piece getPiece(int row, int col) {
         if (!isValidPosition(row, col))
             return null;
-        return pieces[row][col];
+        return squares[row * 8 + col];
     }
 
     public void setPiece(int row, int col, Piece piece) {
         if (isValidPosition(row, col)) {
-            pieces[row][col] = piece;
+            setPiece(row * 8 + col, piece);
+        }
+    }
+
+    private void setPiece(int sq, Piece piece) {
+        long bit = 1L << sq;
+        attackMapsValid = 0;
+
+        Piece old = squares[sq];
+        if (old != null) {
+            bitboards[old.getColor().ordinal()][old.getType().ordinal()] &= ~bit;
+            occupancy[old.getColor().ordinal()] &= ~bit;
+            allPieces &= ~bit;
+            hash ^= Zobrist.PIECES[old.getColor().ordinal()][old.getType().ordinal()][sq];
+            pieceCounts[old.getColor().ordinal()][old.getType().ordinal()]--;
+            midgameScore -= PieceSquareTables.MIDGAME[old.getColor().ordinal()][old.getType().ordinal()][sq];
+            endgameScore -= PieceSquareTables.ENDGAME[old.getColor().ordinal()][old.getType().ordinal()][sq];
+            phase -= PieceSquareTables.PHASE[old.getType().ordinal()];
+            if (old.getType() == Piece.PieceType.KING && kingSquares[old.getColor().ordinal()] == sq) {
+                kingSquares[old.getColor().ordinal()] = -1;
+            }
+        }
+
+        squares[sq] = piece;
+        if (piece != null) {
+            bitboards[piece.getColor().ordinal()][piece.getType().ordinal()] |= bit;
+            occupancy[piece.getColor().ordinal()] |= bit;
+            allPieces |= bit;
+            hash ^= Zobrist.PIECES[piece.getColor().ordinal()][piece.getType().ordinal()][sq];
+            pieceCounts[piece.getColor().ordinal()][piece.getType().ordinal()]++;
+            midgameScore += PieceSquareTables.MIDGAME[piece.getColor().ordinal()][piece.getType().ordinal()][sq];
+            endgameScore += PieceSquareTables.ENDGAME[piece.getColor().ordinal()][piece.getType().ordinal()][sq];
+            phase += PieceSquareTables.PHASE[piece.getType().ordinal()];
+            if (piece.getType() == Piece.PieceType.KING) {
+                kingSquares[piece.getColor().ordinal()] = sq;
+            }
         }
     }
 
@@ -76,255 +185,596 @@ public class Board {
     }
 
     public Move getLastMove() {
-        return lastMove;
+        return lastMove == Move.NONE ? null : new Move(lastMove);
     }
 
     public void setLastMove(Move move) {
-        this.lastMove = move;
+        this.lastMove = move == null ? Move.NONE : move.getPacked();
     }
 
     public Board copy() {
-        return new Board(pieces, lastMove);
+        return new Board(this);
     }
 
-    public List<Move> getLegalMoves(int row, int col, Piece.PieceColor currentPlayer) {
-        List<Move> moves = new ArrayList<>();
-        Piece piece = getPiece(row, col);
+    public Piece.PieceColor getSideToMove() {
+        return sideToMove;
+    }
 
-        if (piece == null || piece.getColor() != currentPlayer) {
-            return moves;
-        }
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    public long getHash() {
+        return hash;
+    }
 
-        switch (piece.getType()) {
-            case PAWN:
-                addPawnMoves(moves, row, col, piece.getColor());
-                break;
-            case KNIGHT:
-                addKnightMoves(moves, row, col, piece.getColor());
-                break;
-            case BISHOP:
-                addBishopMoves(moves, row, col, piece.getColor());
-                break;
-            case ROOK:
-                addRookMoves(moves, row, col, piece.getColor());
-                break;
-            case QUEEN:
-                addQueenMoves(moves, row, col, piece.getColor());
-                break;
-            case KING:
-                addKingMoves(moves, row, col, piece.getColor());
-                break;
+    public void setSideToMove(Piece.PieceColor color) {
+        if (color != sideToMove) {
+            sideToMove = color;
+            hash ^= Zobrist.SIDE;
         }
+    }
 
-        return moves;
+    public void setCastlingRights(int rights) {
+        hash ^= Zobrist.CASTLING[castlingRights] ^ Zobrist.CASTLING[rights];
+        castlingRights = rights;
     }
 
-    private void addPawnMoves(List<Move> moves, int row, int col, Piece.PieceColor color) {
-        int direction = color == Piece.PieceColor.WHITE ? 1 : -1;
-        int startRow = color == Piece.PieceColor.WHITE ? 1 : 6;
-        int promotionRow = color == Piece.PieceColor.WHITE ? 7 : 0;
+    // Square a pawn can capture onto en passant, or -1
+    public void setEnPassantSquare(int sq) {
+        hash ^= enPassantKey;
+        enPassantSquare = sq;
+        enPassantKey = enPassantKey(sq);
+        hash ^= enPassantKey;
+    }
 
-        // Forward move
-        int newRow = row + direction;
-        if (isValidPosition(newRow, col) && getPiece(newRow, col) == null) {
-            if (newRow == promotionRow) {
-                moves.add(new Move(row, col, newRow, col, Move.MoveType.PROMOTION, null, Piece.PieceType.QUEEN));
-            } else {
-                moves.add(new Move(row, col, newRow, col));
-            }
+    // Like Polyglot, the file only counts when an enemy pawn attacks the square. Otherwise a double
+    // push nobody can take would never repeat the same position reached by a single push.
+    private long enPassantKey(int sq) {
+        if (sq < 0)
+            return 0L;
+        Piece.PieceColor capturer = sq < 32 ? Piece.PieceColor.BLACK : Piece.PieceColor.WHITE;
+        long pawns = bitboards[capturer.ordinal()][Piece.PieceType.PAWN.ordinal()];
+        return (Attacks.pawn(capturer.opposite(), sq) & pawns) != 0 ? Zobrist.EN_PASSANT[sq & 7] : 0L;
+    }
 
-            // Double move from start
-            if (row == startRow) {
-                int doubleRow = row + 2 * direction;
-                if (getPiece(doubleRow, col) == null) {
-                    moves.add(new Move(row, col, doubleRow, col));
-                }
+    // Recomputes the key from scratch; the incremental key must always match it
+    public long computeHash() {
+        long key = 0L;
+        for (int sq = 0; sq < 64; sq++) {
+            Piece piece = squares[sq];
+            if (piece != null) {
+                key ^= Zobrist.PIECES[piece.getColor().ordinal()][piece.getType().ordinal()][sq];
             }
         }
+        key ^= Zobrist.CASTLING[castlingRights];
+        key ^= enPassantKey(enPassantSquare);
+        if (sideToMove == Piece.PieceColor.BLACK)
+            key ^= Zobrist.SIDE;
+        return key;
+    }
 
-        // Captures
-        for (int dcol : new int[] { -1, 1 }) {
-            int newCol = col + dcol;
-            if (isValidPosition(newRow, newCol)) {
-                Piece target = getPiece(newRow, newCol);
-                if (target != null && target.getColor() != color) {
-                    if (newRow == promotionRow) {
-                        moves.add(new Move(row, col, newRow, newCol, Move.MoveType.PROMOTION, target,
-                                Piece.PieceType.QUEEN));
-                    } else {
-                        moves.add(new Move(row, col, newRow, newCol, Move.MoveType.NORMAL, target, null));
-                    }
-                }
-            }
+    public void makeMove(Move move) {
+        makeMove(move.getPacked());
+    }
+
+    public void makeMove(int move) {
+        if (undoSize == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoSize * 2);
+        }
+        UndoState undo = undoStack[undoSize];
+        if (undo == null) {
+            undo = new UndoState();
+            undoStack[undoSize] = undo;
+        }
+        undoSize++;
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int type = Move.type(move);
+        Piece piece = squares[from];
+
+        undo.move = move;
+        undo.lastMove = lastMove;
+        undo.castlingRights = castlingRights;
+        undo.enPassantSquare = enPassantSquare;
+        undo.enPassantKey = enPassantKey;
+        undo.halfmoveClock = halfmoveClock;
+        undo.hash = hash;
+        undo.whiteAttacks = attackMaps[0];
+        undo.blackAttacks = attackMaps[1];
+        undo.attackMapsValid = attackMapsValid;
+
+        if (type == Move.TYPE_EN_PASSANT) {
+            // The captured pawn sits beside the moving pawn, not on the target square
+            int capturedSquare = (from & ~7) | (to & 7);
+            undo.captured = squares[capturedSquare];
+            setPiece(capturedSquare, null);
+        } else {
+            undo.captured = squares[to];
         }
 
-        // En passant
-        if (lastMove != null && lastMove.getMoveType() == Move.MoveType.NORMAL) {
-            Piece lastPiece = getPiece(lastMove.getToRow(), lastMove.getToCol());
-            if (lastPiece != null && lastPiece.getType() == Piece.PieceType.PAWN &&
-                    Math.abs(lastMove.getToRow() - lastMove.getFromRow()) == 2 &&
-                    lastMove.getToRow() == row && Math.abs(lastMove.getToCol() - col) == 1) {
-                moves.add(new Move(row, col, newRow, lastMove.getToCol(), Move.MoveType.EN_PASSANT, lastPiece, null));
-            }
+        setPiece(from, null);
+        if (type == Move.TYPE_PROMOTION) {
+            setPiece(to, Piece.of(PIECE_TYPES[Move.promotion(move)], piece.getColor()));
+        } else {
+            setPiece(to, piece);
         }
+
+        if (type == Move.TYPE_CASTLE_KINGSIDE) {
+            moveRook(from + 3, from + 1);
+        } else if (type == Move.TYPE_CASTLE_QUEENSIDE) {
+            moveRook(from - 4, from - 1);
+        }
+
+        lastMove = move;
+        if (piece.getType() == Piece.PieceType.PAWN || undo.captured != null) {
+            halfmoveClock = 0;
+        } else {
+            halfmoveClock++;
+        }
+        if (piece.getType() == Piece.PieceType.PAWN && Math.abs(to - from) == 16) {
+            setEnPassantSquare((from + to) >>> 1);
+        } else {
+            setEnPassantSquare(-1);
+        }
+        if (castlingRights != 0) {
+            setCastlingRights(castlingRights & CASTLING_MASKS[from] & CASTLING_MASKS[to]);
+        }
+        sideToMove = sideToMove.opposite();
+        hash ^= Zobrist.SIDE;
+
+        if (DEBUG)
+            verify();
     }
 
-    private void addKnightMoves(List<Move> moves, int row, int col, Piece.PieceColor color) {
-        int[][] offsets = { { -2, -1 }, { -2, 1 }, { -1, -2 }, { -1, 2 }, { 1, -2 }, { 1, 2 }, { 2, -1 }, { 2, 1 } };
-        for (int[] offset : offsets) {
-            int newRow = row + offset[0];
-            int newCol = col + offset[1];
-            if (isValidPosition(newRow, newCol)) {
-                Piece target = getPiece(newRow, newCol);
-                if (target == null || target.getColor() != color) {
-                    moves.add(new Move(row, col, newRow, newCol, Move.MoveType.NORMAL, target, null));
+    private void moveRook(int from, int to) {
+        Piece rook = squares[from];
+        setPiece(from, null);
+        setPiece(to, rook);
+    }
+
+    public void unmakeMove() {
+        if (undoSize == 0) {
+            throw new IllegalStateException("No move to unmake");
+        }
+        UndoState undo = undoStack[--undoSize];
+        int move = undo.move;
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int type = Move.type(move);
+
+        if (type == Move.TYPE_CASTLE_KINGSIDE) {
+            moveRook(from + 1, from + 3);
+        } else if (type == Move.TYPE_CASTLE_QUEENSIDE) {
+            moveRook(from - 1, from - 4);
+        }
+
+        // A promoted piece turns back into the pawn that moved
+        Piece piece = squares[to];
+        if (type == Move.TYPE_PROMOTION) {
+            piece = Piece.of(Piece.PieceType.PAWN, piece.getColor());
+        }
+        setPiece(from, piece);
+        if (type == Move.TYPE_EN_PASSANT) {
+            setPiece(to, null);
+            setPiece((from & ~7) | (to & 7), undo.captured);
+        } else {
+            setPiece(to, undo.captured);
+        }
+
+        lastMove = undo.lastMove;
+        sideToMove = sideToMove.opposite();
+        castlingRights = undo.castlingRights;
+        enPassantSquare = undo.enPassantSquare;
+        enPassantKey = undo.enPassantKey;
+        halfmoveClock = undo.halfmoveClock;
+        hash = undo.hash;
+        attackMaps[0] = undo.whiteAttacks;
+        attackMaps[1] = undo.blackAttacks;
+        attackMapsValid = undo.attackMapsValid;
+
+        if (DEBUG)
+            verify();
+    }
+
+    private void verify() {
+        for (Piece.PieceColor color : Piece.PieceColor.values()) {
+            int expected = -1;
+            for (int sq = 0; sq < 64; sq++) {
+                Piece piece = squares[sq];
+                if (piece != null && piece.getType() == Piece.PieceType.KING && piece.getColor() == color) {
+                    expected = sq;
+                    break;
                 }
             }
+            if (kingSquares[color.ordinal()] != expected) {
+                throw new IllegalStateException("Tracked " + color + " king on " + kingSquares[color.ordinal()]
+                        + " but found it on " + expected);
+            }
+            for (Piece.PieceType type : PIECE_TYPES) {
+                int count = Long.bitCount(bitboards[color.ordinal()][type.ordinal()]);
+                if (pieceCounts[color.ordinal()][type.ordinal()] != count) {
+                    throw new IllegalStateException("Counted " + pieceCounts[color.ordinal()][type.ordinal()] + " "
+                            + color + " " + type + " but found " + count);
+                }
+            }
+        }
+
+        int midgame = 0;
+        int endgame = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            Piece piece = squares[sq];
+            if (piece != null) {
+                midgame += PieceSquareTables.MIDGAME[piece.getColor().ordinal()][piece.getType().ordinal()][sq];
+                endgame += PieceSquareTables.ENDGAME[piece.getColor().ordinal()][piece.getType().ordinal()][sq];
+            }
+        }
+        if (midgameScore != midgame || endgameScore != endgame) {
+            throw new IllegalStateException("Tracked scores " + midgameScore + "/" + endgameScore
+                    + " but found " + midgame + "/" + endgame);
         }
     }
 
-    private void addBishopMoves(List<Move> moves, int row, int col, Piece.PieceColor color) {
-        addDirectionalMoves(moves, row, col, color, new int[][] { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } });
+    public long getPieces(Piece.PieceType type, Piece.PieceColor color) {
+        return bitboards[color.ordinal()][type.ordinal()];
     }
 
-    private void addRookMoves(List<Move> moves, int row, int col, Piece.PieceColor color) {
-        addDirectionalMoves(moves, row, col, color, new int[][] { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } });
+    public long getOccupancy(Piece.PieceColor color) {
+        return occupancy[color.ordinal()];
     }
 
-    private void addQueenMoves(List<Move> moves, int row, int col, Piece.PieceColor color) {
-        addDirectionalMoves(moves, row, col, color,
-                new int[][] { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 }, { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } });
+    public long getOccupancy() {
+        return allPieces;
     }
 
-    private void addDirectionalMoves(List<Move> moves, int row, int col, Piece.PieceColor color, int[][] directions) {
-        for (int[] dir : directions) {
-            int newRow = row + dir[0];
-            int newCol = col + dir[1];
-            while (isValidPosition(newRow, newCol)) {
-                Piece target = getPiece(newRow, newCol);
-                if (target == null) {
-                    moves.add(new Move(row, col, newRow, newCol));
-                } else {
-                    if (target.getColor() != color) {
-                        moves.add(new Move(row, col, newRow, newCol, Move.MoveType.NORMAL, target, null));
-                    }
-                    break;
-                }
-                newRow += dir[0];
-                newCol += dir[1];
-            }
+    public int getPieceCount(Piece.PieceType type, Piece.PieceColor color) {
+        return pieceCounts[color.ordinal()][type.ordinal()];
+    }
+
+    // Piece-square evaluation blended between the midgame and endgame totals by the material left,
+    // from white's point of view
+    public int getTaperedScore() {
+        int midgamePhase = Math.min(phase, PieceSquareTables.MAX_PHASE);
+        return (midgameScore * midgamePhase + endgameScore * (PieceSquareTables.MAX_PHASE - midgamePhase))
+                / PieceSquareTables.MAX_PHASE;
+    }
+
+    // Neither side can ever mate: bare kings, a single minor piece, or only bishops that all
+    // stand on squares of one colour
+    public boolean hasInsufficientMaterial() {
+        int[] white = pieceCounts[0];
+        int[] black = pieceCounts[1];
+        if (white[PAWN] + black[PAWN] + white[ROOK] + black[ROOK] + white[QUEEN] + black[QUEEN] != 0) {
+            return false;
+        }
+
+        int knights = white[KNIGHT] + black[KNIGHT];
+        int bishops = white[BISHOP] + black[BISHOP];
+        if (knights + bishops <= 1) {
+            return true;
+        }
+        if (knights != 0) {
+            return false;
         }
+        long allBishops = bitboards[0][BISHOP] | bitboards[1][BISHOP];
+        return (allBishops & LIGHT_SQUARES) == 0 || (allBishops & ~LIGHT_SQUARES) == 0;
     }
 
-    private void addKingMoves(List<Move> moves, int row, int col, Piece.PieceColor color) {
-        int[][] offsets = { { -1, -1 }, { -1, 0 }, { -1, 1 }, { 0, -1 }, { 0, 1 }, { 1, -1 }, { 1, 0 }, { 1, 1 } };
-        for (int[] offset : offsets) {
-            int newRow = row + offset[0];
-            int newCol = col + offset[1];
-            if (isValidPosition(newRow, newCol)) {
-                Piece target = getPiece(newRow, newCol);
-                if (target == null || target.getColor() != color) {
-                    moves.add(new Move(row, col, newRow, newCol, Move.MoveType.NORMAL, target, null));
-                }
+    // Legal moves of the piece on one square, as Move objects for UI and command code
+    public List<Move> getLegalMoves(int row, int col, Piece.PieceColor currentPlayer) {
+        List<Move> moves = new ArrayList<>();
+        if (!isValidPosition(row, col) || currentPlayer != sideToMove) {
+            return moves;
+        }
+
+        MoveList list = new MoveList();
+        generateLegalMoves(list, 1L << (row * 8 + col));
+        for (int i = 0; i < list.size(); i++) {
+            moves.add(new Move(list.get(i)));
+        }
+        return moves;
+    }
+
+    public void generateLegalMoves(MoveList list) {
+        generateLegalMoves(list, -1L);
+    }
+
+    // Legal moves for the side to move, limited to pieces standing on fromMask. Checkers and
+    // pins are worked out once up front, so no move needs to be tried on the board.
+    public void generateLegalMoves(MoveList list, long fromMask) {
+        list.clear();
+        int us = sideToMove.ordinal();
+        long[] pieces = bitboards[us];
+        int king = kingSquares[us];
+        if (king < 0) {
+            return;
+        }
+
+        Piece.PieceColor them = sideToMove.opposite();
+        long own = occupancy[us];
+        long danger = getAttacks(them);
+        long checkers = (danger & pieces[KING]) != 0 ? attackersTo(king, them, allPieces) : 0L;
+
+        if ((pieces[KING] & fromMask) != 0) {
+            addTargets(list, king, Attacks.king(king) & ~own & ~danger);
+            if (checkers == 0) {
+                addCastlingMoves(list, king, danger);
             }
         }
 
-        // Castling
-        Piece king = getPiece(row, col);
-        if (!king.hasMoved()) {
-            // Kingside
-            Piece kingsideRook = getPiece(row, 7);
-            if (kingsideRook != null && !kingsideRook.hasMoved() &&
-                    getPiece(row, 5) == null && getPiece(row, 6) == null) {
-                moves.add(new Move(row, col, row, 6, Move.MoveType.CASTLE_KINGSIDE, null, null));
+        // In double check only the king can move
+        if ((checkers & (checkers - 1)) != 0) {
+            return;
+        }
+
+        // Out of check any target works; in check a move must capture the checker or block it
+        long targetMask = ~own;
+        if (checkers != 0) {
+            targetMask = checkers | Attacks.between(king, Long.numberOfTrailingZeros(checkers));
+        }
+        long pinned = pinnedPieces(king, us);
+
+        addPawnMoves(list, pieces[PAWN] & fromMask, king, targetMask, pinned);
+
+        // A pinned knight can never stay on the pin line
+        long knights = pieces[KNIGHT] & fromMask & ~pinned;
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            addTargets(list, from, Attacks.knight(from) & targetMask);
+        }
+
+        long diagonal = (pieces[BISHOP] | pieces[QUEEN]) & fromMask;
+        while (diagonal != 0) {
+            int from = Long.numberOfTrailingZeros(diagonal);
+            diagonal &= diagonal - 1;
+            long targets = Attacks.bishop(from, allPieces) & targetMask;
+            if ((pinned & (1L << from)) != 0) {
+                targets &= Attacks.line(king, from);
             }
+            addTargets(list, from, targets);
+        }
 
-            // Queenside
-            Piece queensideRook = getPiece(row, 0);
-            if (queensideRook != null && !queensideRook.hasMoved() &&
-                    getPiece(row, 1) == null && getPiece(row, 2) == null && getPiece(row, 3) == null) {
-                moves.add(new Move(row, col, row, 2, Move.MoveType.CASTLE_QUEENSIDE, null, null));
+        long orthogonal = (pieces[ROOK] | pieces[QUEEN]) & fromMask;
+        while (orthogonal != 0) {
+            int from = Long.numberOfTrailingZeros(orthogonal);
+            orthogonal &= orthogonal - 1;
+            long targets = Attacks.rook(from, allPieces) & targetMask;
+            if ((pinned & (1L << from)) != 0) {
+                targets &= Attacks.line(king, from);
             }
+            addTargets(list, from, targets);
         }
     }
 
-    public int[] findKing(Piece.PieceColor color) {
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                Piece piece = getPiece(row, col);
-                if (piece != null && piece.getType() == Piece.PieceType.KING && piece.getColor() == color) {
-                    return new int[] { row, col };
-                }
+    // Pieces of the given side that shield their king from an enemy slider
+    private long pinnedPieces(int king, int us) {
+        long[] theirs = bitboards[us ^ 1];
+        long snipers = (Attacks.rook(king, 0L) & (theirs[ROOK] | theirs[QUEEN]))
+                | (Attacks.bishop(king, 0L) & (theirs[BISHOP] | theirs[QUEEN]));
+
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Attacks.between(king, sniper) & allPieces;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0) {
+                pinned |= blockers & occupancy[us];
             }
         }
-        return null;
+        return pinned;
     }
 
-    public boolean isSquareAttacked(int row, int col, Piece.PieceColor attacker) {
-        // Check pawn attacks
-        int pawnDir = attacker == Piece.PieceColor.WHITE ? 1 : -1;
-        int pawnRow = row - pawnDir;
-        for (int dcol : new int[] { -1, 1 }) {
-            int pawnCol = col + dcol;
-            if (isValidPosition(pawnRow, pawnCol)) {
-                Piece piece = getPiece(pawnRow, pawnCol);
-                if (piece != null && piece.getType() == Piece.PieceType.PAWN && piece.getColor() == attacker) {
-                    return true;
-                }
-            }
+    // Pieces of the attacking side that attack sq, given an occupancy
+    private long attackersTo(int sq, Piece.PieceColor attacker, long occupied) {
+        long[] pieces = bitboards[attacker.ordinal()];
+        return (Attacks.pawn(attacker.opposite(), sq) & pieces[PAWN])
+                | (Attacks.knight(sq) & pieces[KNIGHT])
+                | (Attacks.king(sq) & pieces[KING])
+                | (Attacks.bishop(sq, occupied) & (pieces[BISHOP] | pieces[QUEEN]))
+                | (Attacks.rook(sq, occupied) & (pieces[ROOK] | pieces[QUEEN]));
+    }
+
+    private static void addTargets(MoveList list, int from, long targets) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            list.add(Move.encode(from, to, Move.TYPE_NORMAL, 0));
         }
+    }
 
-        // Check knight attacks
-        int[][] knightOffsets = { { -2, -1 }, { -2, 1 }, { -1, -2 }, { -1, 2 }, { 1, -2 }, { 1, 2 }, { 2, -1 },
-                { 2, 1 } };
-        for (int[] offset : knightOffsets) {
-            int r = row + offset[0];
-            int c = col + offset[1];
-            if (isValidPosition(r, c)) {
-                Piece piece = getPiece(r, c);
-                if (piece != null && piece.getType() == Piece.PieceType.KNIGHT && piece.getColor() == attacker) {
-                    return true;
-                }
-            }
+    private void addPawnMoves(MoveList list, long pawns, int king, long targetMask, long pinned) {
+        if (pawns == 0) {
+            return;
         }
 
-        // Check sliding pieces (bishop, rook, queen)
-        int[][] directions = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 }, { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
-        for (int i = 0; i < directions.length; i++) {
-            int[] dir = directions[i];
-            boolean isDiagonal = i >= 4;
-            int r = row + dir[0];
-            int c = col + dir[1];
-            while (isValidPosition(r, c)) {
-                Piece piece = getPiece(r, c);
-                if (piece != null) {
-                    if (piece.getColor() == attacker) {
-                        if (piece.getType() == Piece.PieceType.QUEEN ||
-                                (isDiagonal && piece.getType() == Piece.PieceType.BISHOP) ||
-                                (!isDiagonal && piece.getType() == Piece.PieceType.ROOK)) {
-                            return true;
-                        }
-                    }
-                    break;
-                }
-                r += dir[0];
-                c += dir[1];
+        long empty = ~allPieces;
+        long enemy = occupancy[sideToMove.opposite().ordinal()];
+        boolean white = sideToMove == Piece.PieceColor.WHITE;
+        int forward = white ? 8 : -8;
+
+        // Forward moves, the double push only from the start rank
+        long single;
+        long dbl;
+        if (white) {
+            single = (pawns << 8) & empty;
+            dbl = ((single & 0x0000000000FF0000L) << 8) & empty;
+        } else {
+            single = (pawns >>> 8) & empty;
+            dbl = ((single & 0x0000FF0000000000L) >>> 8) & empty;
+        }
+        addPawnTargets(list, single & targetMask, forward, king, pinned);
+        addPawnTargets(list, dbl & targetMask, 2 * forward, king, pinned);
+
+        // Captures toward the a-file and toward the h-file
+        long left;
+        long right;
+        if (white) {
+            left = ((pawns & ~FILE_A) << 7) & enemy;
+            right = ((pawns & ~FILE_H) << 9) & enemy;
+        } else {
+            left = ((pawns & ~FILE_A) >>> 9) & enemy;
+            right = ((pawns & ~FILE_H) >>> 7) & enemy;
+        }
+        addPawnTargets(list, left & targetMask, forward - 1, king, pinned);
+        addPawnTargets(list, right & targetMask, forward + 1, king, pinned);
+
+        if (enPassantSquare >= 0) {
+            addEnPassantMoves(list, pawns, king);
+        }
+    }
+
+    private void addPawnTargets(MoveList list, long targets, int offset, int king, long pinned) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int from = to - offset;
+            if ((pinned & (1L << from)) != 0 && (Attacks.line(king, from) & (1L << to)) == 0) {
+                continue;
+            }
+            if (to >= 56 || to < 8) {
+                // Queen first so callers picking the first matching move promote to a queen
+                list.add(Move.encode(from, to, Move.TYPE_PROMOTION, QUEEN));
+                list.add(Move.encode(from, to, Move.TYPE_PROMOTION, KNIGHT));
+                list.add(Move.encode(from, to, Move.TYPE_PROMOTION, ROOK));
+                list.add(Move.encode(from, to, Move.TYPE_PROMOTION, BISHOP));
+            } else {
+                list.add(Move.encode(from, to, Move.TYPE_NORMAL, 0));
             }
         }
+    }
 
-        // Check king attacks
-        int[][] kingOffsets = { { -1, -1 }, { -1, 0 }, { -1, 1 }, { 0, -1 }, { 0, 1 }, { 1, -1 }, { 1, 0 }, { 1, 1 } };
-        for (int[] offset : kingOffsets) {
-            int r = row + offset[0];
-            int c = col + offset[1];
-            if (isValidPosition(r, c)) {
-                Piece piece = getPiece(r, c);
-                if (piece != null && piece.getType() == Piece.PieceType.KING && piece.getColor() == attacker) {
-                    return true;
-                }
+    // En passant removes two pawns from the same rank at once, which can expose the king along
+    // that rank even when neither pawn is pinned on its own. Each capture is checked against the
+    // occupancy it leaves behind, which also covers check evasions and real pins.
+    private void addEnPassantMoves(MoveList list, long pawns, int king) {
+        Piece.PieceColor them = sideToMove.opposite();
+        int capturedSquare = enPassantSquare + (sideToMove == Piece.PieceColor.WHITE ? -8 : 8);
+        long capturedBit = 1L << capturedSquare;
+
+        long attackers = Attacks.pawn(them, enPassantSquare) & pawns;
+        while (attackers != 0) {
+            int from = Long.numberOfTrailingZeros(attackers);
+            attackers &= attackers - 1;
+            long occupied = (allPieces ^ (1L << from) ^ capturedBit) | (1L << enPassantSquare);
+            if ((attackersTo(king, them, occupied) & ~capturedBit) == 0) {
+                list.add(Move.encode(from, enPassantSquare, Move.TYPE_EN_PASSANT, 0));
             }
         }
+    }
+
+    // Only called when not in check. The king may not pass through or land on an attacked square.
+    private void addCastlingMoves(MoveList list, int king, long danger) {
+        boolean white = sideToMove == Piece.PieceColor.WHITE;
+        int kingside = white ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+        int queenside = white ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+        long rank = white ? 0xFFL : 0xFFL << 56;
+
+        // Kingside, f and g files must be empty and safe
+        if ((castlingRights & kingside) != 0 && (allPieces & rank & 0x6060606060606060L) == 0
+                && (danger & rank & 0x6060606060606060L) == 0) {
+            list.add(Move.encode(king, king + 2, Move.TYPE_CASTLE_KINGSIDE, 0));
+        }
+
+        // Queenside, b, c and d files must be empty; only d and c need to be safe
+        if ((castlingRights & queenside) != 0 && (allPieces & rank & 0x0E0E0E0E0E0E0E0EL) == 0
+                && (danger & rank & 0x0C0C0C0C0C0C0C0CL) == 0) {
+            list.add(Move.encode(king, king - 2, Move.TYPE_CASTLE_QUEENSIDE, 0));
+        }
+    }
+
+    // Square of the given side's king, or -1 if it has none
+    public int getKingSquare(Piece.PieceColor color) {
+        return kingSquares[color.ordinal()];
+    }
+
+    public boolean isInCheck() {
+        long king = bitboards[sideToMove.ordinal()][KING];
+        return (getAttacks(sideToMove.opposite()) & king) != 0;
+    }
+
+    // Every square the given side attacks, treating the other side's king as transparent
+    public long getAttacks(Piece.PieceColor color) {
+        int c = color.ordinal();
+        if ((attackMapsValid & (1 << c)) == 0) {
+            attackMaps[c] = computeAttacks(c, allPieces & ~bitboards[c ^ 1][KING]);
+            attackMapsValid |= 1 << c;
+        }
+        return attackMaps[c];
+    }
+
+    private long computeAttacks(int c, long occupied) {
+        long[] pieces = bitboards[c];
+        long pawns = pieces[PAWN];
+        long attacks = c == 0
+                ? ((pawns & ~FILE_A) << 7) | ((pawns & ~FILE_H) << 9)
+                : ((pawns & ~FILE_A) >>> 9) | ((pawns & ~FILE_H) >>> 7);
+
+        long knights = pieces[KNIGHT];
+        while (knights != 0) {
+            attacks |= Attacks.knight(Long.numberOfTrailingZeros(knights));
+            knights &= knights - 1;
+        }
+        long diagonal = pieces[BISHOP] | pieces[QUEEN];
+        while (diagonal != 0) {
+            attacks |= Attacks.bishop(Long.numberOfTrailingZeros(diagonal), occupied);
+            diagonal &= diagonal - 1;
+        }
+        long orthogonal = pieces[ROOK] | pieces[QUEEN];
+        while (orthogonal != 0) {
+            attacks |= Attacks.rook(Long.numberOfTrailingZeros(orthogonal), occupied);
+            orthogonal &= orthogonal - 1;
+        }
+        if (kingSquares[c] >= 0) {
+            attacks |= Attacks.king(kingSquares[c]);
+        }
+        return attacks;
+    }
+
+    public boolean isSquareAttacked(int row, int col, Piece.PieceColor attacker) {
+        return isSquareAttacked(row * 8 + col, attacker);
+    }
+
+    public boolean isSquareAttacked(int sq, Piece.PieceColor attacker) {
+        long[] pieces = bitboards[attacker.ordinal()];
+
+        // A pawn of the attacker sits where a defending pawn on this square would capture
+        if ((Attacks.pawn(attacker.opposite(), sq) & pieces[PAWN]) != 0)
+            return true;
+        if ((Attacks.knight(sq) & pieces[KNIGHT]) != 0)
+            return true;
+        if ((Attacks.king(sq) & pieces[KING]) != 0)
+            return true;
+
+        if ((Attacks.bishop(sq, allPieces) & (pieces[BISHOP] | pieces[QUEEN])) != 0)
+            return true;
+        return (Attacks.rook(sq, allPieces) & (pieces[ROOK] | pieces[QUEEN])) != 0;
+    }
 
-        return false;
+    private static final class UndoState {
+        int move;
+        int lastMove;
+        Piece captured;
+        int castlingRights;
+        int enPassantSquare;
+        long enPassantKey;
+        int halfmoveClock;
+        long hash;
+        long whiteAttacks;
+        long blackAttacks;
+        int attackMapsValid;
     }
 }
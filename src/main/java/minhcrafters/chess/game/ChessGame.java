@@ -5,35 +5,64 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 
 import minhcrafters.chess.config.ChessConfig;
-import minhcrafters.chess.game.ai.UciEngine;
+import minhcrafters.chess.game.ai.ChessEngine;
+import minhcrafters.chess.game.ai.PolyglotBook;
 import minhcrafters.chess.game.util.FenUtils;
 
 public class ChessGame {
     private final UUID gameId;
     private final Board board;
-    private Piece.PieceColor currentPlayer;
+    // Legal moves for the side to move, generated once per ply
+    private final MoveList cachedMoves = new MoveList();
+    private boolean legalMovesValid;
+    private boolean inCheck;
+    private int fullmoveNumber;
+    private final PositionHistory history = new PositionHistory();
+    private int repetitions;
+    // FEN of the current position, rebuilt in a reused buffer at most once per ply
+    private final StringBuilder fenBuffer = new StringBuilder(96);
+    private String fen;
     private GameState state;
     private UUID whitePlayer;
     private UUID blackPlayer;
 
+    private final long incrementTicks;
     private long whiteTime;
     private long blackTime;
     private long lastTickTime;
     private boolean timerStarted;
 
     public ChessGame(UUID gameId) {
+        this(gameId, new Board(), ChessConfig.HANDLER.instance().defaultTimeSeconds * 20L,
+                ChessConfig.HANDLER.instance().incrementSeconds * 20L, 1);
+    }
+
+    // Throws IllegalArgumentException if the FEN is malformed
+    public ChessGame(UUID gameId, String fen) {
+        this(gameId, FenUtils.parse(fen), ChessConfig.HANDLER.instance().defaultTimeSeconds * 20L,
+                ChessConfig.HANDLER.instance().incrementSeconds * 20L, FenUtils.parseFullmoveNumber(fen));
+    }
+
+    // Times are in ticks; the config is only read by the convenience constructors
+    public ChessGame(UUID gameId, Board board, long timeTicks, long incrementTicks, int fullmoveNumber) {
         this.gameId = gameId;
-        this.board = new Board();
-        this.currentPlayer = Piece.PieceColor.WHITE;
+        this.board = board;
         this.state = GameState.ACTIVE;
+        this.fullmoveNumber = fullmoveNumber;
+        this.repetitions = history.push(board.getHash());
 
-        this.whiteTime = ChessConfig.HANDLER.instance().defaultTimeSeconds * 20L;
-        this.blackTime = ChessConfig.HANDLER.instance().defaultTimeSeconds * 20L;
+        this.incrementTicks = incrementTicks;
+        this.whiteTime = timeTicks;
+        this.blackTime = timeTicks;
         this.lastTickTime = 0;
         this.timerStarted = false;
+
+        updateGameState();
     }
 
     public UUID getGameId() {
@@ -45,7 +74,24 @@ public class ChessGame {
     }
 
     public Piece.PieceColor getCurrentPlayer() {
-        return currentPlayer;
+        return board.getSideToMove();
+    }
+
+    public int getHalfmoveClock() {
+        return board.getHalfmoveClock();
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public String getFen() {
+        if (fen == null) {
+            fenBuffer.setLength(0);
+            FenUtils.appendFen(fenBuffer, board, fullmoveNumber);
+            fen = fenBuffer.toString();
+        }
+        return fen;
     }
 
     public GameState getState() {
@@ -69,7 +115,7 @@ public class ChessGame {
     }
 
     public boolean isPlayerTurn(UUID playerId) {
-        if (currentPlayer == Piece.PieceColor.WHITE) {
+        if (board.getSideToMove() == Piece.PieceColor.WHITE) {
             return playerId.equals(whitePlayer);
         } else {
             return playerId.equals(blackPlayer);
@@ -77,37 +123,45 @@ public class ChessGame {
     }
 
     public List<Move> getLegalMoves(int row, int col) {
-        List<Move> pseudoLegalMoves = board.getLegalMoves(row, col, currentPlayer);
         List<Move> legalMoves = new ArrayList<>();
+        if (!board.isValidPosition(row, col)) {
+            return legalMoves;
+        }
 
-        for (Move move : pseudoLegalMoves) {
-            if (isMoveLegal(move)) {
-                legalMoves.add(move);
+        MoveList moves = legalMoves();
+        int from = row * 8 + col;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (Move.from(move) == from) {
+                legalMoves.add(new Move(move));
             }
         }
 
         return legalMoves;
     }
 
-    private boolean isMoveLegal(Move move) {
-        // Make the move temporarily
-        Board testBoard = board.copy();
-        applyMoveToBoard(testBoard, move);
-
-        // Check if king is in check after the move
-        int[] kingPos = testBoard.findKing(currentPlayer);
-        if (kingPos == null)
-            return false;
-
-        boolean inCheck = testBoard.isSquareAttacked(kingPos[0], kingPos[1], currentPlayer.opposite());
-        return !inCheck;
+    private MoveList legalMoves() {
+        if (!legalMovesValid) {
+            board.generateLegalMoves(cachedMoves);
+            inCheck = board.isInCheck();
+            legalMovesValid = true;
+        }
+        return cachedMoves;
     }
 
-    private final Map<Piece.PieceColor, UciEngine> aiEngines = new HashMap<>();
+    private final Map<Piece.PieceColor, ChessEngine> aiEngines = new HashMap<>();
     private BiConsumer<Move, ChessGame> onAiMove;
+    private PolyglotBook openingBook;
+    // The AI's reply, from the book or from an engine thread, waiting for the next tick to play
+    // it on the server thread
+    private final AtomicReference<String> pendingAiMove = new AtomicReference<>();
+
+    // Consulted before the engine on every AI turn; set it before adding an AI that moves first
+    public void setOpeningBook(PolyglotBook openingBook) {
+        this.openingBook = openingBook;
+    }
 
-    public void addAi(String enginePath, Piece.PieceColor aiColor, BiConsumer<Move, ChessGame> onAiMove) {
-        UciEngine engine = new UciEngine(enginePath);
+    public void addAi(ChessEngine engine, Piece.PieceColor aiColor, BiConsumer<Move, ChessGame> onAiMove) {
         this.aiEngines.put(aiColor, engine);
         this.onAiMove = onAiMove;
         try {
@@ -116,44 +170,73 @@ public class ChessGame {
             e.printStackTrace();
         }
 
-        if (currentPlayer == aiColor) {
+        if (board.getSideToMove() == aiColor) {
             triggerAiMove();
         }
     }
 
     private void triggerAiMove() {
-        UciEngine engine = aiEngines.get(currentPlayer);
+        ChessEngine engine = aiEngines.get(board.getSideToMove());
         if (engine == null)
             return;
 
+        if (openingBook != null) {
+            // A corrupt or mismatched book can name a move that is not legal here; the engine
+            // answers instead
+            String bookMove = openingBook.pickMove(board, ThreadLocalRandom.current());
+            if (bookMove != null && isLegalMove(bookMove)) {
+                // Played on the next tick, so a human's move finishes before the reply lands
+                pendingAiMove.set(bookMove);
+                return;
+            }
+        }
+
         long wtime = whiteTime * 50;
         long btime = blackTime * 50;
-        long inc = ChessConfig.HANDLER.instance().incrementSeconds * 1000L;
+        long inc = incrementTicks * 50;
 
-        engine.getBestMove(FenUtils.getFen(board, currentPlayer), wtime, btime, inc, inc)
+        engine.getBestMove(getFen(), wtime, btime, inc, inc)
                 .thenAccept(uciMove -> {
                     if (uciMove != null) {
-                        makeAiMove(uciMove);
+                        pendingAiMove.set(uciMove);
                     }
                 });
     }
 
+    private boolean isLegalMove(String uciMove) {
+        MoveList moves = legalMoves();
+        for (int i = 0; i < moves.size(); i++) {
+            if (Move.toString(moves.get(i)).equals(uciMove)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void closeAi() {
-        for (UciEngine engine : aiEngines.values()) {
+        for (ChessEngine engine : aiEngines.values()) {
             engine.close();
         }
         aiEngines.clear();
+        pendingAiMove.set(null);
     }
 
     private void makeAiMove(String uciMove) {
-        if (uciMove.length() < 4)
+        // The game may have ended while the engine was thinking
+        if (state != GameState.ACTIVE || uciMove.length() < 4)
             return;
         int fromCol = uciMove.charAt(0) - 'a';
         int fromRow = uciMove.charAt(1) - '1';
         int toCol = uciMove.charAt(2) - 'a';
         int toRow = uciMove.charAt(3) - '1';
+        Piece.PieceType promotion = null;
+        if (uciMove.length() > 4) {
+            int index = "pnbrqk".indexOf(uciMove.charAt(4));
+            if (index > 0)
+                promotion = Piece.PieceType.values()[index];
+        }
 
-        boolean success = makeMove(fromRow, fromCol, toRow, toCol);
+        boolean success = makeMove(fromRow, fromCol, toRow, toCol, promotion);
 
         if (success && onAiMove != null) {
             onAiMove.accept(board.getLastMove(), this);
@@ -161,12 +244,34 @@ public class ChessGame {
     }
 
     public boolean makeMove(int fromRow, int fromCol, int toRow, int toCol) {
-        List<Move> legalMoves = getLegalMoves(fromRow, fromCol);
+        return makeMove(fromRow, fromCol, toRow, toCol, null);
+    }
+
+    // A null promotion picks the first matching move, which promotes to a queen
+    public boolean makeMove(int fromRow, int fromCol, int toRow, int toCol, Piece.PieceType promotion) {
+        if (!board.isValidPosition(fromRow, fromCol) || !board.isValidPosition(toRow, toCol)) {
+            return false;
+        }
 
-        for (Move move : legalMoves) {
-            if (move.getToRow() == toRow && move.getToCol() == toCol) {
-                applyMoveToBoard(board, move);
-                board.setLastMove(move);
+        int from = fromRow * 8 + fromCol;
+        int to = toRow * 8 + toCol;
+        MoveList moves = legalMoves();
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (Move.from(move) == from && Move.to(move) == to
+                    && (promotion == null || Move.promotion(move) == promotion.ordinal())) {
+                Piece.PieceColor mover = board.getSideToMove();
+                board.makeMove(move);
+                legalMovesValid = false;
+                fen = null;
+                if (mover == Piece.PieceColor.BLACK) {
+                    fullmoveNumber++;
+                }
+                if (board.getHalfmoveClock() == 0) {
+                    history.clear();
+                }
+                repetitions = history.push(board.getHash());
 
                 // Timer logic
                 if (!timerStarted) {
@@ -174,18 +279,17 @@ public class ChessGame {
                     lastTickTime = 0;
                 }
 
-                long increment = ChessConfig.HANDLER.instance().incrementSeconds * 20L;
-                if (currentPlayer == Piece.PieceColor.WHITE) {
-                    whiteTime += increment;
+                if (mover == Piece.PieceColor.WHITE) {
+                    whiteTime += incrementTicks;
                 } else {
-                    blackTime += increment;
+                    blackTime += incrementTicks;
                 }
 
-                currentPlayer = currentPlayer.opposite();
-
                 updateGameState();
 
-                if (state == GameState.ACTIVE && aiEngines.containsKey(currentPlayer)) {
+                if (state != GameState.ACTIVE) {
+                    closeAi();
+                } else if (aiEngines.containsKey(board.getSideToMove())) {
                     triggerAiMove();
                 }
 
@@ -196,88 +300,34 @@ public class ChessGame {
         return false;
     }
 
-    private void applyMoveToBoard(Board board, Move move) {
-        Piece piece = board.getPiece(move.getFromRow(), move.getFromCol());
-
-        if (move.getMoveType() == Move.MoveType.CASTLE_KINGSIDE) {
-            // Move king
-            board.setPiece(move.getToRow(), move.getToCol(), piece);
-            board.setPiece(move.getFromRow(), move.getFromCol(), null);
-            piece.setMoved(true);
-
-            // Move rook
-            Piece rook = board.getPiece(move.getFromRow(), 7);
-            board.setPiece(move.getFromRow(), 5, rook);
-            board.setPiece(move.getFromRow(), 7, null);
-            rook.setMoved(true);
-        } else if (move.getMoveType() == Move.MoveType.CASTLE_QUEENSIDE) {
-            // Move king
-            board.setPiece(move.getToRow(), move.getToCol(), piece);
-            board.setPiece(move.getFromRow(), move.getFromCol(), null);
-            piece.setMoved(true);
-
-            // Move rook
-            Piece rook = board.getPiece(move.getFromRow(), 0);
-            board.setPiece(move.getFromRow(), 3, rook);
-            board.setPiece(move.getFromRow(), 0, null);
-            rook.setMoved(true);
-        } else if (move.getMoveType() == Move.MoveType.EN_PASSANT) {
-            // Move pawn
-            board.setPiece(move.getToRow(), move.getToCol(), piece);
-            board.setPiece(move.getFromRow(), move.getFromCol(), null);
-            piece.setMoved(true);
-
-            // Remove captured pawn
-            board.setPiece(move.getFromRow(), move.getToCol(), null);
-        } else if (move.getMoveType() == Move.MoveType.PROMOTION) {
-            // Promote pawn
-            Piece promotedPiece = new Piece(move.getPromotionType(), piece.getColor());
-            promotedPiece.setMoved(true);
-            board.setPiece(move.getToRow(), move.getToCol(), promotedPiece);
-            board.setPiece(move.getFromRow(), move.getFromCol(), null);
-        } else {
-            // Normal move
-            board.setPiece(move.getToRow(), move.getToCol(), piece);
-            board.setPiece(move.getFromRow(), move.getFromCol(), null);
-            piece.setMoved(true);
-        }
-    }
-
     private void updateGameState() {
-        boolean hasLegalMoves = false;
-
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                Piece piece = board.getPiece(row, col);
-                if (piece != null && piece.getColor() == currentPlayer) {
-                    if (!getLegalMoves(row, col).isEmpty()) {
-                        hasLegalMoves = true;
-                        break;
-                    }
-                }
-            }
-            if (hasLegalMoves)
-                break;
-        }
-
-        if (!hasLegalMoves) {
-            int[] kingPos = board.findKing(currentPlayer);
-            if (kingPos != null && board.isSquareAttacked(kingPos[0], kingPos[1], currentPlayer.opposite())) {
-                state = currentPlayer == Piece.PieceColor.WHITE ? GameState.BLACK_WINS : GameState.WHITE_WINS;
+        if (legalMoves().isEmpty()) {
+            if (inCheck) {
+                state = board.getSideToMove() == Piece.PieceColor.WHITE ? GameState.BLACK_WINS : GameState.WHITE_WINS;
             } else {
                 state = GameState.STALEMATE;
             }
+        } else if (board.hasInsufficientMaterial()) {
+            state = GameState.DRAW_INSUFFICIENT_MATERIAL;
+        } else if (repetitions >= 3) {
+            state = GameState.DRAW_REPETITION;
+        } else if (board.getHalfmoveClock() >= 100) {
+            state = GameState.DRAW_FIFTY_MOVES;
         }
     }
 
     public boolean isInCheck() {
-        int[] kingPos = board.findKing(currentPlayer);
-        if (kingPos == null)
-            return false;
-        return board.isSquareAttacked(kingPos[0], kingPos[1], currentPlayer.opposite());
+        legalMoves();
+        return inCheck;
     }
 
     public void tick(long worldTime) {
+        String aiMove = pendingAiMove.getAndSet(null);
+        // An engine may still answer after its AI was closed
+        if (aiMove != null && aiEngines.containsKey(board.getSideToMove())) {
+            makeAiMove(aiMove);
+        }
+
         if (state != GameState.ACTIVE || !timerStarted) {
             lastTickTime = worldTime;
             return;
@@ -297,7 +347,7 @@ public class ChessGame {
         if (delta < 0)
             delta = 0;
 
-        if (currentPlayer == Piece.PieceColor.WHITE) {
+        if (board.getSideToMove() == Piece.PieceColor.WHITE) {
             whiteTime -= delta;
             if (whiteTime <= 0) {
                 whiteTime = 0;
@@ -321,6 +371,6 @@ public class ChessGame {
     }
 
     public enum GameState {
-        ACTIVE, WHITE_WINS, BLACK_WINS, STALEMATE
+        ACTIVE, WHITE_WINS, BLACK_WINS, STALEMATE, DRAW_REPETITION, DRAW_FIFTY_MOVES, DRAW_INSUFFICIENT_MATERIAL
     }
 }
@@ -31,8 +31,14 @@ public class ChessManager {
     }
 
     public ChessGame createGame(BlockPos boardCenter, String worldId) {
+        return createGame(boardCenter, worldId, null);
+    }
+
+    // Starts from the given FEN, or the initial position if it is null. Throws
+    // IllegalArgumentException for a malformed FEN before anything is registered.
+    public ChessGame createGame(BlockPos boardCenter, String worldId, String fen) {
         UUID gameId = UUID.randomUUID();
-        ChessGame game = new ChessGame(gameId);
+        ChessGame game = fen == null ? new ChessGame(gameId) : new ChessGame(gameId, fen);
 
         games.put(gameId, game);
         gameLocations.put(gameId, new GameLocation(boardCenter, worldId));
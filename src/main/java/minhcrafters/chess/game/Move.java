@@ -1,65 +1,109 @@
 package minhcrafters.chess.game;
 
 public class Move {
-    private final int fromRow;
-    private final int fromCol;
-    private final int toRow;
-    private final int toCol;
-    private final MoveType moveType;
-    private final Piece capturedPiece;
-    private final Piece.PieceType promotionType;
+    // Packed layout: bits 0-5 from square, 6-11 to square, 12-14 move type, 15-17 promotion piece.
+    // Squares are row * 8 + col. A packed value of 0 (a1 to a1) is never a real move.
+    public static final int NONE = 0;
+
+    public static final int TYPE_NORMAL = 0;
+    public static final int TYPE_CASTLE_KINGSIDE = 1;
+    public static final int TYPE_CASTLE_QUEENSIDE = 2;
+    public static final int TYPE_EN_PASSANT = 3;
+    public static final int TYPE_PROMOTION = 4;
+
+    private static final MoveType[] MOVE_TYPES = MoveType.values();
+    private static final Piece.PieceType[] PIECE_TYPES = Piece.PieceType.values();
+
+    private final int packed;
 
     public Move(int fromRow, int fromCol, int toRow, int toCol) {
-        this(fromRow, fromCol, toRow, toCol, MoveType.NORMAL, null, null);
+        this(fromRow, fromCol, toRow, toCol, MoveType.NORMAL, null);
+    }
+
+    public Move(int fromRow, int fromCol, int toRow, int toCol, MoveType moveType, Piece.PieceType promotionType) {
+        this(encode(fromRow * 8 + fromCol, toRow * 8 + toCol, moveType.ordinal(),
+                promotionType == null ? 0 : promotionType.ordinal()));
+    }
+
+    public Move(int packed) {
+        this.packed = packed;
     }
 
-    public Move(int fromRow, int fromCol, int toRow, int toCol, MoveType moveType, Piece capturedPiece,
-            Piece.PieceType promotionType) {
-        this.fromRow = fromRow;
-        this.fromCol = fromCol;
-        this.toRow = toRow;
-        this.toCol = toCol;
-        this.moveType = moveType;
-        this.capturedPiece = capturedPiece;
-        this.promotionType = promotionType;
+    public static int encode(int from, int to, int type, int promotion) {
+        return from | (to << 6) | (type << 12) | (promotion << 15);
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static int type(int move) {
+        return (move >>> 12) & 0x7;
+    }
+
+    // Piece type ordinal of the promotion piece, or 0 when the move is not a promotion
+    public static int promotion(int move) {
+        return (move >>> 15) & 0x7;
+    }
+
+    public static String toString(int move) {
+        int from = from(move);
+        int to = to(move);
+        String uci = "" + (char) ('a' + (from & 7)) + ((from >>> 3) + 1) + (char) ('a' + (to & 7)) + ((to >>> 3) + 1);
+        if (type(move) == TYPE_PROMOTION) {
+            uci += "pnbrqk".charAt(promotion(move));
+        }
+        return uci;
+    }
+
+    public int getPacked() {
+        return packed;
     }
 
     public int getFromRow() {
-        return fromRow;
+        return from(packed) >>> 3;
     }
 
     public int getFromCol() {
-        return fromCol;
+        return from(packed) & 7;
     }
 
     public int getToRow() {
-        return toRow;
+        return to(packed) >>> 3;
     }
 
     public int getToCol() {
-        return toCol;
+        return to(packed) & 7;
     }
 
     public MoveType getMoveType() {
-        return moveType;
-    }
-
-    public Piece getCapturedPiece() {
-        return capturedPiece;
+        return MOVE_TYPES[type(packed)];
     }
 
     public Piece.PieceType getPromotionType() {
-        return promotionType;
+        return type(packed) == TYPE_PROMOTION ? PIECE_TYPES[promotion(packed)] : null;
     }
 
     public enum MoveType {
         NORMAL, CASTLE_KINGSIDE, CASTLE_QUEENSIDE, EN_PASSANT, PROMOTION
     }
 
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Move other && other.packed == packed;
+    }
+
+    @Override
+    public int hashCode() {
+        return packed;
+    }
+
     @Override
     public String toString() {
-        char fromFile = (char) ('a' + fromCol);
-        char toFile = (char) ('a' + toCol);
-        return "" + fromFile + (fromRow + 1) + toFile + (toRow + 1);
+        return toString(packed);
     }
 }
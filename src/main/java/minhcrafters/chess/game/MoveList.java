@@ -0,0 +1,31 @@
+package minhcrafters.chess.game;
+
+public class MoveList {
+    // No chess position has more than 218 legal moves; pseudo-legal lists stay well under 256
+    private final int[] moves = new int[256];
+    private int size;
+
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -1,14 +1,27 @@
 package minhcrafters.chess.game;
 
-public class Piece {
+// Immutable; there is exactly one instance per color and type, so pieces compare by identity
+public final class Piece {
+    private static final Piece[] PIECES = new Piece[12];
+
+    static {
+        for (PieceColor color : PieceColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[color.ordinal() * 6 + type.ordinal()] = new Piece(type, color);
+            }
+        }
+    }
+
     private final PieceType type;
     private final PieceColor color;
-    private boolean hasMoved;
 
-    public Piece(PieceType type, PieceColor color) {
+    private Piece(PieceType type, PieceColor color) {
         this.type = type;
         this.color = color;
-        this.hasMoved = false;
+    }
+
+    public static Piece of(PieceType type, PieceColor color) {
+        return PIECES[color.ordinal() * 6 + type.ordinal()];
     }
 
     public PieceType getType() {
@@ -19,20 +32,6 @@ public class Piece {
         return color;
     }
 
-    public boolean hasMoved() {
-        return hasMoved;
-    }
-
-    public void setMoved(boolean moved) {
-        this.hasMoved = moved;
-    }
-
-    public Piece copy() {
-        Piece copy = new Piece(type, color);
-        copy.hasMoved = this.hasMoved;
-        return copy;
-    }
-
     @Override
     public String toString() {
         return color.toString().charAt(0) + type.toString();
@@ -0,0 +1,54 @@
+package minhcrafters.chess.game;
+
+import java.util.Arrays;
+
+// Zobrist keys of the positions since the last capture or pawn move, with a count per key so
+// repetitions are found without rescanning. The fifty-move rule ends a game within 101 positions,
+// so in practice the ring never wraps.
+final class PositionHistory {
+    private static final int CAPACITY = 128;
+    private static final int TABLE_SIZE = CAPACITY * 2;
+
+    private final long[] ring = new long[CAPACITY];
+    private int start;
+    private int size;
+
+    // Open addressing over the keys in the ring; a slot is free when its count is 0
+    private final long[] tableKeys = new long[TABLE_SIZE];
+    private final int[] tableCounts = new int[TABLE_SIZE];
+
+    // Records a position and returns how often it has now occurred
+    int push(long key) {
+        if (size == CAPACITY) {
+            dropOldest();
+        }
+        ring[(start + size++) % CAPACITY] = key;
+        return increment(key);
+    }
+
+    // Called after an irreversible move; no earlier position can occur again
+    void clear() {
+        Arrays.fill(tableCounts, 0);
+        start = 0;
+        size = 0;
+    }
+
+    // Rebuilds the table rather than deleting one key, which would break other keys' probe chains
+    private void dropOldest() {
+        start = (start + 1) % CAPACITY;
+        size--;
+        Arrays.fill(tableCounts, 0);
+        for (int i = 0; i < size; i++) {
+            increment(ring[(start + i) % CAPACITY]);
+        }
+    }
+
+    private int increment(long key) {
+        int slot = (int) (key ^ (key >>> 32)) & (TABLE_SIZE - 1);
+        while (tableCounts[slot] != 0 && tableKeys[slot] != key) {
+            slot = (slot + 1) & (TABLE_SIZE - 1);
+        }
+        tableKeys[slot] = key;
+        return ++tableCounts[slot];
+    }
+}
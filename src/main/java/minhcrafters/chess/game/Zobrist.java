@@ -0,0 +1,43 @@
+package minhcrafters.chess.game;
+
+import java.util.SplittableRandom;
+
+final class Zobrist {
+    static final long[][][] PIECES = new long[2][6][64];
+    static final long[] CASTLING = new long[16];
+    static final long[] EN_PASSANT = new long[8];
+    static final long SIDE;
+
+    static {
+        // Fixed seed so keys (and anything keyed by them) are stable across restarts
+        SplittableRandom random = new SplittableRandom(0x5EEDC4E55L);
+        for (int color = 0; color < 2; color++) {
+            for (int type = 0; type < 6; type++) {
+                for (int sq = 0; sq < 64; sq++) {
+                    PIECES[color][type][sq] = random.nextLong();
+                }
+            }
+        }
+
+        // Combined rights get their own key, built from one key per right
+        long[] rights = new long[4];
+        for (int i = 0; i < 4; i++) {
+            rights[i] = random.nextLong();
+        }
+        for (int mask = 0; mask < 16; mask++) {
+            for (int i = 0; i < 4; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    CASTLING[mask] ^= rights[i];
+                }
+            }
+        }
+
+        for (int file = 0; file < 8; file++) {
+            EN_PASSANT[file] = random.nextLong();
+        }
+        SIDE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+}
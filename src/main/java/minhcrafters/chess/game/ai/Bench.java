@@ -0,0 +1,71 @@
+package minhcrafters.chess.game.ai;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import minhcrafters.chess.game.util.FenUtils;
+
+// Fixed-depth searches of a fixed set of positions, each with a fresh table, so the node total
+// only changes when the search does. Compare it before and after an ordering or pruning change.
+public class Bench {
+    public static final int DEFAULT_DEPTH = 6;
+    private static final int TABLE_SIZE_MB = 16;
+    private static final long NO_TIME_LIMIT_MS = TimeUnit.DAYS.toMillis(1);
+
+    private static final String[] POSITIONS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r1bqk1nr/pppp1ppp/2n5/2b1p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "8/8/4k3/3rP3/8/4K3/3R4/8 b - - 0 1",
+    };
+
+    public static Result run(int depth) {
+        Map<String, Long> perPosition = new LinkedHashMap<>();
+        long nodes = 0;
+        long start = System.nanoTime();
+        for (String fen : POSITIONS) {
+            Search search = new Search(FenUtils.parse(fen), new TranspositionTable(TABLE_SIZE_MB));
+            search.search(NO_TIME_LIMIT_MS, depth);
+            perPosition.put(fen, search.getNodes());
+            nodes += search.getNodes();
+        }
+        return new Result(depth, nodes, System.nanoTime() - start, perPosition);
+    }
+
+    public static class Result {
+        private final int depth;
+        private final long nodes;
+        private final long elapsedNanos;
+        private final Map<String, Long> perPosition;
+
+        public Result(int depth, long nodes, long elapsedNanos, Map<String, Long> perPosition) {
+            this.depth = depth;
+            this.nodes = nodes;
+            this.elapsedNanos = elapsedNanos;
+            this.perPosition = perPosition;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getNodesPerSecond() {
+            return elapsedNanos == 0 ? 0 : (long) (nodes * 1_000_000_000.0 / elapsedNanos);
+        }
+
+        public Map<String, Long> getPerPosition() {
+            return perPosition;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package minhcrafters.chess.game.ai;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+public interface ChessEngine {
+    void start() throws IOException;
+
+    // Times are in milliseconds; completes with a UCI move such as "e2e4", or null if there is none
+    CompletableFuture<String> getBestMove(String fen, long wtime, long btime, long winc, long binc);
+
+    void close();
+}
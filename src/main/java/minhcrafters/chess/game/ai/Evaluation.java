@@ -0,0 +1,19 @@
+package minhcrafters.chess.game.ai;
+
+import minhcrafters.chess.game.Board;
+import minhcrafters.chess.game.Piece;
+
+public final class Evaluation {
+    // Centipawns, indexed by piece type ordinal
+    static final int[] PIECE_VALUES = { 100, 320, 330, 500, 900, 0 };
+
+    private Evaluation() {
+    }
+
+    // Score from the side to move's point of view. The board keeps its piece-square totals up to
+    // date as pieces move, so this costs the same whatever is on the board.
+    public static int evaluate(Board board) {
+        int score = board.getTaperedScore();
+        return board.getSideToMove() == Piece.PieceColor.WHITE ? score : -score;
+    }
+}
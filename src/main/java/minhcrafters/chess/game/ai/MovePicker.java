@@ -0,0 +1,113 @@
+package minhcrafters.chess.game.ai;
+
+import minhcrafters.chess.game.Board;
+import minhcrafters.chess.game.Move;
+import minhcrafters.chess.game.MoveList;
+import minhcrafters.chess.game.Piece;
+
+// Orders one node's moves in stages: the hash move, captures that static exchange says do not
+// lose material (most valuable victim, then least valuable attacker), the two killers and the
+// countermove, quiet moves by history, and last the losing captures and underpromotions. The
+// generator produces every legal move at once, so the stages are score bands and next() selects
+// the best move left; a node that cuts off early never sorts the rest.
+final class MovePicker {
+    private static final int HASH_MOVE = Integer.MAX_VALUE;
+    private static final int GOOD_CAPTURE = 1 << 28;
+    // Above any history score, which stays within +-Search.HISTORY_MAX
+    private static final int KILLER = 1 << 24;
+    private static final int BAD_CAPTURE = -(1 << 28);
+    private static final int UNDERPROMOTION = -(1 << 29);
+
+    private final MoveList moves = new MoveList();
+    private final int[] scores = new int[256];
+    // Moves kept from the generated list, which quiescence filters in place
+    private int size;
+    private int index;
+
+    // All legal moves for a full-width node
+    void init(Board board, int hashMove, int killer1, int killer2, int counterMove, int[] history) {
+        board.generateLegalMoves(moves);
+        size = moves.size();
+        index = 0;
+        for (int i = 0; i < size; i++) {
+            int move = moves.get(i);
+            if (move == hashMove) {
+                scores[i] = HASH_MOVE;
+            } else if (isTactical(board, move)) {
+                scores[i] = tacticalScore(board, move);
+            } else if (move == killer1) {
+                scores[i] = KILLER;
+            } else if (move == killer2) {
+                scores[i] = KILLER - 1;
+            } else if (move == counterMove) {
+                scores[i] = KILLER - 2;
+            } else {
+                scores[i] = history[Move.from(move) * 64 + Move.to(move)];
+            }
+        }
+    }
+
+    // Quiescence keeps only captures and queen promotions that do not lose material; in check
+    // every evasion is kept so mates are still seen
+    void initQuiescence(Board board, boolean inCheck) {
+        board.generateLegalMoves(moves);
+        index = 0;
+        int kept = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int score = isTactical(board, move) ? tacticalScore(board, move) : 0;
+            if (inCheck || score >= GOOD_CAPTURE) {
+                moves.set(kept, move);
+                scores[kept++] = score;
+            }
+        }
+        size = kept;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // The best remaining move, or Move.NONE once every move has been returned
+    int next() {
+        if (index >= size) {
+            return Move.NONE;
+        }
+        int best = index;
+        for (int i = index + 1; i < size; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves.get(best);
+        moves.set(best, moves.get(index));
+        moves.set(index, move);
+        scores[best] = scores[index];
+        index++;
+        return move;
+    }
+
+    static boolean isTactical(Board board, int move) {
+        int type = Move.type(move);
+        return type == Move.TYPE_EN_PASSANT || type == Move.TYPE_PROMOTION
+                || board.getPiece(Move.to(move) >>> 3, Move.to(move) & 7) != null;
+    }
+
+    private static int tacticalScore(Board board, int move) {
+        boolean promotion = Move.type(move) == Move.TYPE_PROMOTION;
+        if (promotion && Move.promotion(move) != Piece.PieceType.QUEEN.ordinal()) {
+            return UNDERPROMOTION;
+        }
+        int to = Move.to(move);
+        int from = Move.from(move);
+        Piece victim = board.getPiece(to >>> 3, to & 7);
+        int gain = victim != null ? Evaluation.PIECE_VALUES[victim.getType().ordinal()]
+                : Move.type(move) == Move.TYPE_EN_PASSANT ? Evaluation.PIECE_VALUES[0] : 0;
+        if (promotion) {
+            gain += Evaluation.PIECE_VALUES[Piece.PieceType.QUEEN.ordinal()] - Evaluation.PIECE_VALUES[0];
+        }
+        int attacker = board.getPiece(from >>> 3, from & 7).getType().ordinal();
+        int mvvLva = gain * 8 - attacker;
+        return StaticExchange.atLeast(board, move, 0) ? GOOD_CAPTURE + mvvLva : BAD_CAPTURE + mvvLva;
+    }
+}
@@ -0,0 +1,333 @@
+package minhcrafters.chess.game.ai;
+
+import java.util.Arrays;
+
+import minhcrafters.chess.game.Board;
+import minhcrafters.chess.game.Move;
+import minhcrafters.chess.game.MoveList;
+
+// Iterative deepening negamax with alpha-beta and principal variation search. One instance
+// searches one position on one thread; stop() may be called from any thread. Lazy SMP helpers
+// are extra instances on copies of the board with a non-zero thread index.
+public class Search {
+    public static final int MAX_PLY = 128;
+    static final int INFINITY = 32000;
+    static final int MATE = 31000;
+    static final int HISTORY_MAX = 16384;
+    private static final int QUIETS_TRACKED = 64;
+
+    private Board board;
+    private TranspositionTable table;
+    private int threadIndex;
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    private final long[] keys = new long[MAX_PLY + 1];
+    // Moves played on the current search path, for countermoves
+    private final int[] path = new int[MAX_PLY];
+
+    // Ordering statistics for quiet moves, kept for the whole search
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[] counterMoves = new int[64 * 64];
+    private final int[][] history = new int[2][64 * 64];
+    private final int[][] quietsTried = new int[MAX_PLY][QUIETS_TRACKED];
+
+    private volatile boolean stopped;
+    private long deadline;
+    private long nodes;
+    private int bestMove = Move.NONE;
+    private int rootBest;
+    private int bestScore;
+    private int completedDepth;
+
+    public Search(Board board, TranspositionTable table) {
+        this(board, table, 0);
+    }
+
+    public Search(Board board, TranspositionTable table, int threadIndex) {
+        this.board = board;
+        this.table = table;
+        this.threadIndex = threadIndex;
+        for (int i = 0; i < MAX_PLY; i++) {
+            pickers[i] = new MovePicker();
+        }
+    }
+
+    // Points a finished search at a new position with cleared statistics, so the tables above
+    // are allocated once per thread rather than once per move
+    void reset(Board board, TranspositionTable table, int threadIndex) {
+        this.board = board;
+        this.table = table;
+        this.threadIndex = threadIndex;
+        for (int[] slots : killers) {
+            Arrays.fill(slots, Move.NONE);
+        }
+        Arrays.fill(counterMoves, Move.NONE);
+        for (int[] side : history) {
+            Arrays.fill(side, 0);
+        }
+        stopped = false;
+        nodes = 0;
+        bestMove = Move.NONE;
+        rootBest = Move.NONE;
+        bestScore = 0;
+        completedDepth = 0;
+    }
+
+    // Returns the best move found within the time budget, or Move.NONE if there are no legal moves
+    public int search(long timeMillis, int maxDepth) {
+        deadline = System.nanoTime() + timeMillis * 1_000_000L;
+        keys[0] = board.getHash();
+        if (threadIndex == 0) {
+            table.newSearch();
+        }
+
+        // Odd helpers run one ply ahead so the threads spread over different depths
+        for (int depth = 1 + (threadIndex & 1); depth <= Math.min(maxDepth, MAX_PLY - 1); depth++) {
+            rootBest = Move.NONE;
+            int score = negamax(depth, 0, -INFINITY, INFINITY);
+            if (stopped) {
+                // A cut-off iteration may not have looked at every root move, so only use it
+                // when there is nothing better
+                if (bestMove == Move.NONE) {
+                    bestMove = rootBest != Move.NONE ? rootBest : firstLegalMove();
+                }
+                break;
+            }
+            bestMove = rootBest;
+            bestScore = score;
+            completedDepth = depth;
+
+            // No point searching deeper once a forced mate is found
+            if (Math.abs(score) >= MATE - MAX_PLY) {
+                break;
+            }
+        }
+        return bestMove;
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        if (depth <= 0) {
+            return quiescence(ply, alpha, beta);
+        }
+        if ((++nodes & 1023) == 0 && System.nanoTime() >= deadline) {
+            stopped = true;
+        }
+        if (stopped) {
+            return 0;
+        }
+
+        if (ply > 0 && (board.getHalfmoveClock() >= 100 || isRepetition(ply))) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return Evaluation.evaluate(board);
+        }
+
+        long key = keys[ply];
+        long entry = table.probe(key);
+        int hashMove = Move.NONE;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+        if (ply == 0 && bestMove != Move.NONE) {
+            hashMove = bestMove;
+        }
+
+        // A colliding entry's hash move simply won't be among the legal moves
+        int[] sideHistory = history[board.getSideToMove().ordinal()];
+        int previous = ply > 0 ? path[ply - 1] : Move.NONE;
+        MovePicker picker = pickers[ply];
+        picker.init(board, hashMove, killers[ply][0], killers[ply][1], counterMoves[butterfly(previous)], sideHistory);
+        if (picker.size() == 0) {
+            return board.isInCheck() ? -MATE + ply : 0;
+        }
+
+        int originalAlpha = alpha;
+        int nodeBest = Move.NONE;
+        int best = -INFINITY;
+        int searched = 0;
+        int quiets = 0;
+        for (int move = picker.next(); move != Move.NONE; move = picker.next()) {
+            boolean quiet = !MovePicker.isTactical(board, move);
+            board.makeMove(move);
+            keys[ply + 1] = board.getHash();
+            path[ply] = move;
+
+            int score;
+            if (searched++ == 0) {
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                // Prove the move is no better than the current best with a null window first
+                score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta) {
+                    score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            board.unmakeMove();
+
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                nodeBest = move;
+                if (ply == 0) {
+                    rootBest = move;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        if (quiet) {
+                            updateQuietStats(ply, move, previous, depth, sideHistory, quiets);
+                        }
+                        break;
+                    }
+                }
+            }
+            if (quiet && quiets < QUIETS_TRACKED) {
+                quietsTried[ply][quiets++] = move;
+            }
+        }
+
+        int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+                : best > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        table.store(key, nodeBest, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    // Resolves captures at the horizon so a leaf is never scored in the middle of an exchange.
+    // The side to move may stand pat on the static score unless it is in check.
+    private int quiescence(int ply, int alpha, int beta) {
+        if ((++nodes & 1023) == 0 && System.nanoTime() >= deadline) {
+            stopped = true;
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return Evaluation.evaluate(board);
+        }
+
+        boolean inCheck = board.isInCheck();
+        int best = -INFINITY;
+        if (!inCheck) {
+            best = Evaluation.evaluate(board);
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+
+        MovePicker picker = pickers[ply];
+        picker.initQuiescence(board, inCheck);
+        if (inCheck && picker.size() == 0) {
+            return -MATE + ply;
+        }
+
+        for (int move = picker.next(); move != Move.NONE; move = picker.next()) {
+            board.makeMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            board.unmakeMove();
+
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    // A quiet move that caused a cut-off becomes a killer at this ply and the reply to the
+    // previous move. Its history rises and the quiet moves tried before it fall.
+    private void updateQuietStats(int ply, int move, int previous, int depth, int[] sideHistory, int quiets) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        if (previous != Move.NONE) {
+            counterMoves[butterfly(previous)] = move;
+        }
+        int bonus = Math.min(depth * depth, 400);
+        addHistory(sideHistory, move, bonus);
+        for (int i = 0; i < quiets; i++) {
+            addHistory(sideHistory, quietsTried[ply][i], -bonus);
+        }
+    }
+
+    // Scaled so repeated bonuses approach HISTORY_MAX rather than overflow
+    private static void addHistory(int[] sideHistory, int move, int bonus) {
+        int index = butterfly(move);
+        sideHistory[index] += bonus - sideHistory[index] * Math.abs(bonus) / HISTORY_MAX;
+    }
+
+    private static int butterfly(int move) {
+        return Move.from(move) * 64 + Move.to(move);
+    }
+
+    // Mate scores are stored relative to the node so they stay correct at any ply
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY)
+            return score + ply;
+        if (score <= -MATE + MAX_PLY)
+            return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY)
+            return score - ply;
+        if (score <= -MATE + MAX_PLY)
+            return score + ply;
+        return score;
+    }
+
+    private int firstLegalMove() {
+        MoveList moves = new MoveList();
+        board.generateLegalMoves(moves);
+        return moves.isEmpty() ? Move.NONE : moves.get(0);
+    }
+
+    // Any earlier position on the search path with the same side to move, back to the last
+    // capture or pawn move
+    private boolean isRepetition(int ply) {
+        int earliest = Math.max(0, ply - board.getHalfmoveClock());
+        for (int i = ply - 2; i >= earliest; i -= 2) {
+            if (keys[i] == keys[ply]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,122 @@
+package minhcrafters.chess.game.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import minhcrafters.chess.game.Board;
+import minhcrafters.chess.game.Move;
+import minhcrafters.chess.game.Piece;
+import minhcrafters.chess.game.util.FenUtils;
+
+// In-process alternative to UciEngine. Searches run on the shared SearchThreads budget, so any
+// number of AI boards cost threads only while they are thinking. Each search runs Lazy SMP: the
+// main thread and any helpers it can borrow search copies of the position independently, sharing
+// what they find through the transposition table.
+public class SearchEngine implements ChessEngine {
+    private static final int MAX_DEPTH = 64;
+    private static final long MIN_MOVE_TIME_MS = 20;
+
+    private final TranspositionTable table;
+    private final SearchThreads threads;
+    private final int maxThreads;
+    // Searches borrowed from the thread budget that this engine may stop. Guarded by itself, so
+    // nothing stops a search after it has gone back to the budget for another game.
+    private final List<Search> running = new ArrayList<>();
+    private volatile boolean closed;
+
+    public SearchEngine(TranspositionTable table, SearchThreads threads, int maxThreads) {
+        this.table = table;
+        this.threads = threads;
+        this.maxThreads = Math.max(1, maxThreads);
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public CompletableFuture<String> getBestMove(String fen, long wtime, long btime, long winc, long binc) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                threads.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            try {
+                if (closed)
+                    return null;
+
+                Board board = FenUtils.parse(fen);
+                boolean white = board.getSideToMove() == Piece.PieceColor.WHITE;
+                long moveTime = moveTime(white ? wtime : btime, white ? winc : binc);
+
+                int helpers = threads.tryAcquire(maxThreads - 1);
+                for (int i = 1; i <= helpers; i++) {
+                    Search helper = start(threads.borrow(board.copy(), table, i));
+                    threads.executor().execute(() -> {
+                        try {
+                            helper.search(moveTime, MAX_DEPTH);
+                        } finally {
+                            finish(helper);
+                            threads.release();
+                        }
+                    });
+                }
+
+                Search main = start(threads.borrow(board, table, 0));
+                int move;
+                try {
+                    move = main.search(moveTime, MAX_DEPTH);
+                } finally {
+                    finish(main);
+                }
+
+                // Helpers only feed the table; once the main thread has a move they are done
+                stopRunning();
+
+                return closed || move == Move.NONE ? null : Move.toString(move);
+            } finally {
+                threads.release();
+            }
+        }, threads.executor());
+    }
+
+    // Spend a slice of the remaining time plus most of the increment, never more than a quarter of the clock
+    static long moveTime(long time, long increment) {
+        long budget = time / 30 + increment * 3 / 4;
+        return Math.max(MIN_MOVE_TIME_MS, Math.min(budget, time / 4));
+    }
+
+    private Search start(Search search) {
+        synchronized (running) {
+            if (closed) {
+                search.stop();
+            }
+            running.add(search);
+        }
+        return search;
+    }
+
+    private void finish(Search search) {
+        synchronized (running) {
+            running.remove(search);
+        }
+        threads.giveBack(search);
+    }
+
+    private void stopRunning() {
+        synchronized (running) {
+            for (Search search : running) {
+                search.stop();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        stopRunning();
+    }
+}
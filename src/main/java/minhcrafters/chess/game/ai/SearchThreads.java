@@ -0,0 +1,84 @@
+package minhcrafters.chess.game.ai;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import minhcrafters.chess.game.Board;
+
+// Server-wide budget of search threads. Every running search holds one permit for its main
+// thread and may borrow more for helpers while they are free, so however many AI boards are
+// thinking, no more than the budget of threads compete with the server tick.
+public final class SearchThreads {
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static SearchThreads shared;
+
+    private final int budget;
+    private final Semaphore permits;
+    // Finished searches kept for reuse; every borrowed one holds a permit, so there are never
+    // more than the budget. Guarded by this.
+    private final Deque<Search> idle = new ArrayDeque<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "Chess Search #" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    public SearchThreads(int budget) {
+        this.budget = Math.max(1, budget);
+        this.permits = new Semaphore(this.budget, true);
+    }
+
+    // Replaced only when the configured budget changes; engines created earlier keep the old one,
+    // whose idle threads then time out on their own
+    public static synchronized SearchThreads shared(int budget) {
+        if (shared == null || shared.budget != Math.max(1, budget)) {
+            shared = new SearchThreads(budget);
+        }
+        return shared;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    ExecutorService executor() {
+        return executor;
+    }
+
+    // Waits for the main thread's permit
+    void acquire() throws InterruptedException {
+        permits.acquire();
+    }
+
+    // Takes up to max helper permits without waiting and returns how many it got
+    int tryAcquire(int max) {
+        int acquired = 0;
+        while (acquired < max && permits.tryAcquire()) {
+            acquired++;
+        }
+        return acquired;
+    }
+
+    void release() {
+        permits.release();
+    }
+
+    // An idle search reset to the position, or a new one if every search is in use
+    synchronized Search borrow(Board board, TranspositionTable table, int threadIndex) {
+        Search search = idle.poll();
+        if (search == null) {
+            return new Search(board, table, threadIndex);
+        }
+        search.reset(board, table, threadIndex);
+        return search;
+    }
+
+    synchronized void giveBack(Search search) {
+        idle.push(search);
+    }
+}
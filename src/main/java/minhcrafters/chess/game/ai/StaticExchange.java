@@ -0,0 +1,103 @@
+package minhcrafters.chess.game.ai;
+
+import minhcrafters.chess.game.Attacks;
+import minhcrafters.chess.game.Board;
+import minhcrafters.chess.game.Move;
+import minhcrafters.chess.game.Piece;
+
+// Static exchange evaluation: plays out every capture on a move's target square, least valuable
+// attacker first, and reports whether the mover comes out at least a threshold ahead. Pins are
+// ignored and sliders behind the capturers are revealed as pieces leave the square's lines.
+final class StaticExchange {
+    private static final int[] VALUES = Evaluation.PIECE_VALUES;
+
+    private StaticExchange() {
+    }
+
+    static boolean atLeast(Board board, int move, int threshold) {
+        int type = Move.type(move);
+        if (type == Move.TYPE_CASTLE_KINGSIDE || type == Move.TYPE_CASTLE_QUEENSIDE) {
+            return threshold <= 0;
+        }
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        Piece mover = board.getPiece(from >>> 3, from & 7);
+        Piece target = board.getPiece(to >>> 3, to & 7);
+
+        // What the mover gains if nothing recaptures, then what it risks if something does
+        int swap = (target != null ? VALUES[target.getType().ordinal()] : type == Move.TYPE_EN_PASSANT ? VALUES[0] : 0)
+                - threshold;
+        if (swap < 0) {
+            return false;
+        }
+        swap = VALUES[mover.getType().ordinal()] - swap;
+        if (swap <= 0) {
+            return true;
+        }
+
+        long occupied = board.getOccupancy() ^ (1L << from) ^ (1L << to);
+        if (type == Move.TYPE_EN_PASSANT) {
+            occupied ^= 1L << (to + (mover.getColor() == Piece.PieceColor.WHITE ? -8 : 8));
+        }
+        long diagonal = pieces(board, Piece.PieceType.BISHOP) | pieces(board, Piece.PieceType.QUEEN);
+        long orthogonal = pieces(board, Piece.PieceType.ROOK) | pieces(board, Piece.PieceType.QUEEN);
+        long attackers = attackersTo(board, to, occupied, diagonal, orthogonal);
+
+        Piece.PieceColor side = mover.getColor();
+        boolean result = true;
+        while (true) {
+            side = side.opposite();
+            attackers &= occupied;
+            long own = attackers & board.getOccupancy(side);
+            if (own == 0) {
+                break;
+            }
+            result = !result;
+
+            long bit;
+            if ((bit = own & board.getPieces(Piece.PieceType.PAWN, side)) != 0) {
+                if ((swap = VALUES[0] - swap) < (result ? 1 : 0))
+                    break;
+                occupied ^= Long.lowestOneBit(bit);
+                attackers |= Attacks.bishop(to, occupied) & diagonal;
+            } else if ((bit = own & board.getPieces(Piece.PieceType.KNIGHT, side)) != 0) {
+                if ((swap = VALUES[1] - swap) < (result ? 1 : 0))
+                    break;
+                occupied ^= Long.lowestOneBit(bit);
+            } else if ((bit = own & board.getPieces(Piece.PieceType.BISHOP, side)) != 0) {
+                if ((swap = VALUES[2] - swap) < (result ? 1 : 0))
+                    break;
+                occupied ^= Long.lowestOneBit(bit);
+                attackers |= Attacks.bishop(to, occupied) & diagonal;
+            } else if ((bit = own & board.getPieces(Piece.PieceType.ROOK, side)) != 0) {
+                if ((swap = VALUES[3] - swap) < (result ? 1 : 0))
+                    break;
+                occupied ^= Long.lowestOneBit(bit);
+                attackers |= Attacks.rook(to, occupied) & orthogonal;
+            } else if ((bit = own & board.getPieces(Piece.PieceType.QUEEN, side)) != 0) {
+                if ((swap = VALUES[4] - swap) < (result ? 1 : 0))
+                    break;
+                occupied ^= Long.lowestOneBit(bit);
+                attackers |= (Attacks.bishop(to, occupied) & diagonal) | (Attacks.rook(to, occupied) & orthogonal);
+            } else {
+                // The king may only take last; if the other side can still recapture it cannot
+                return (attackers & ~board.getOccupancy(side)) != 0 ? !result : result;
+            }
+        }
+        return result;
+    }
+
+    private static long attackersTo(Board board, int sq, long occupied, long diagonal, long orthogonal) {
+        return (Attacks.pawn(Piece.PieceColor.BLACK, sq) & board.getPieces(Piece.PieceType.PAWN, Piece.PieceColor.WHITE))
+                | (Attacks.pawn(Piece.PieceColor.WHITE, sq) & board.getPieces(Piece.PieceType.PAWN, Piece.PieceColor.BLACK))
+                | (Attacks.knight(sq) & pieces(board, Piece.PieceType.KNIGHT))
+                | (Attacks.king(sq) & pieces(board, Piece.PieceType.KING))
+                | (Attacks.bishop(sq, occupied) & diagonal)
+                | (Attacks.rook(sq, occupied) & orthogonal);
+    }
+
+    private static long pieces(Board board, Piece.PieceType type) {
+        return board.getPieces(type, Piece.PieceColor.WHITE) | board.getPieces(type, Piece.PieceColor.BLACK);
+    }
+}
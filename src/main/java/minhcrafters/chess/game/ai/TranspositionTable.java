@@ -0,0 +1,134 @@
+package minhcrafters.chess.game.ai;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Fixed-size hash table of search results kept in a direct buffer, off the server's heap.
+// Each 16-byte entry stores its data and the key XOR the data. A torn write from a racing
+// thread then fails the key check and reads as a miss, so no locking is needed.
+public final class TranspositionTable {
+    public static final int BOUND_EXACT = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_UPPER = 3;
+
+    public static final int MAX_SIZE_MB = 1024;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int BUCKET_BYTES = ENTRY_BYTES * BUCKET_ENTRIES;
+
+    // Data layout: bits 0-17 move, 18-33 score, 34-41 depth, 42-43 bound, 44-49 generation
+    private static final int SCORE_SHIFT = 18;
+    private static final int DEPTH_SHIFT = 34;
+    private static final int BOUND_SHIFT = 42;
+    private static final int GENERATION_SHIFT = 44;
+
+    private static TranspositionTable shared;
+
+    private final ByteBuffer buffer;
+    private final long buckets;
+    private volatile int generation;
+
+    public TranspositionTable(int sizeMb) {
+        int mb = Math.max(1, Math.min(sizeMb, MAX_SIZE_MB));
+        long bytes = (long) mb * 1024 * 1024;
+        this.buckets = Math.min(bytes, Integer.MAX_VALUE) / BUCKET_BYTES;
+        this.buffer = ByteBuffer.allocateDirect((int) (buckets * BUCKET_BYTES)).order(ByteOrder.nativeOrder());
+    }
+
+    // One table for every game on the server, reallocated only when the configured size changes
+    public static synchronized TranspositionTable shared(int sizeMb) {
+        if (shared == null || shared.getSizeMb() != Math.max(1, Math.min(sizeMb, MAX_SIZE_MB))) {
+            shared = new TranspositionTable(sizeMb);
+        }
+        return shared;
+    }
+
+    public int getSizeMb() {
+        return (int) (buckets * BUCKET_BYTES / (1024 * 1024));
+    }
+
+    // Called at the start of each search so older results are replaced first
+    public void newSearch() {
+        generation = (generation + 1) & 0x3F;
+    }
+
+    // Returns the packed entry data, or 0 on a miss; read it with the static accessors
+    public long probe(long key) {
+        int bucket = bucketOffset(key);
+        for (int i = 0; i < BUCKET_ENTRIES; i++) {
+            int offset = bucket + i * ENTRY_BYTES;
+            long data = buffer.getLong(offset);
+            if (data != 0 && (buffer.getLong(offset + 8) ^ data) == key) {
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        int bucket = bucketOffset(key);
+        int current = generation;
+
+        // Same position first, then an empty slot, then the shallowest or oldest entry
+        int replace = bucket;
+        int worst = Integer.MAX_VALUE;
+        for (int i = 0; i < BUCKET_ENTRIES; i++) {
+            int offset = bucket + i * ENTRY_BYTES;
+            long data = buffer.getLong(offset);
+            if (data == 0) {
+                replace = offset;
+                break;
+            }
+            if ((buffer.getLong(offset + 8) ^ data) == key) {
+                // Keep a deeper result for the same position unless it is from an older search
+                if (depth < depth(data) - 2 && generation(data) == current && bound != BOUND_EXACT) {
+                    return;
+                }
+                if (move == 0) {
+                    move = move(data);
+                }
+                replace = offset;
+                break;
+            }
+            int age = (current - generation(data)) & 0x3F;
+            int value = depth(data) - 8 * age;
+            if (value < worst) {
+                worst = value;
+                replace = offset;
+            }
+        }
+
+        long data = (move & 0x3FFFFL)
+                | ((long) (score & 0xFFFF) << SCORE_SHIFT)
+                | ((long) (depth & 0xFF) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) current << GENERATION_SHIFT);
+        buffer.putLong(replace, data);
+        buffer.putLong(replace + 8, key ^ data);
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0x3FFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> SCORE_SHIFT);
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> BOUND_SHIFT) & 0x3);
+    }
+
+    private static int generation(long data) {
+        return (int) ((data >>> GENERATION_SHIFT) & 0x3F);
+    }
+
+    private int bucketOffset(long key) {
+        return (int) Long.remainderUnsigned(key, buckets) * BUCKET_BYTES;
+    }
+}
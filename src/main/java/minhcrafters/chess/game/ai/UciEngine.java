@@ -1,74 +1,85 @@
 package minhcrafters.chess.game.ai;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-public class UciEngine {
-    private Process process;
-    private BufferedReader reader;
-    private BufferedWriter writer;
-    private final String enginePath;
+import minhcrafters.chess.Chess;
 
-    public UciEngine(String enginePath) {
-        this.enginePath = enginePath;
-    }
+// One AI side of one game, searching on engine processes leased from a UciEnginePool. Nothing
+// is held between moves, so a game waiting on a human costs no process. All engine I/O happens
+// on the process's own reader and writer loops; no thread waits on it.
+public class UciEngine implements ChessEngine {
+    // Extra time past the mover's whole clock before a silent engine is given up on
+    private static final long HANG_GRACE_MS = 5_000;
 
-    public void start() throws IOException {
-        ProcessBuilder pb = new ProcessBuilder(enginePath);
-        this.process = pb.start();
-        this.reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-        this.writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+    // Results are handed over here rather than on the engine's reader loop, so the game logic
+    // run by the caller cannot hold up reading that engine's output
+    private static final ExecutorService CALLBACKS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "Chess UCI");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-        sendCommand("uci");
-        
-        // Wait for uciok
-        String line;
-        while ((line = reader.readLine()) != null) {
-            if (line.equals("uciok")) {
-                break;
-            }
-        }
-        
-        sendCommand("isready");
-        while ((line = reader.readLine()) != null) {
-            if (line.equals("readyok")) {
-                break;
-            }
-        }
+    private final UciEnginePool pool;
+    private final UUID gameId;
+    // Guarded by this, so close() never stops a process after it has gone back to the pool
+    private UciProcess leased;
+    private volatile boolean closed;
+
+    public UciEngine(UciEnginePool pool, UUID gameId) {
+        this.pool = pool;
+        this.gameId = gameId;
     }
 
-    public void sendCommand(String command) throws IOException {
-        if (writer == null) return;
-        writer.write(command + "\n");
-        writer.flush();
+    // Processes are started by the pool when a search first needs one
+    @Override
+    public void start() {
     }
 
+    @Override
     public CompletableFuture<String> getBestMove(String fen, long wtime, long btime, long winc, long binc) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                sendCommand("position fen " + fen);
-                sendCommand(String.format("go wtime %d btime %d winc %d binc %d", wtime, btime, winc, binc));
-
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (line.startsWith("bestmove")) {
-                        return line.split(" ")[1];
+        if (closed) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long timeout = Math.max(wtime, btime) + HANG_GRACE_MS;
+        return pool.lease()
+                .thenCompose(process -> search(process, fen, wtime, btime, winc, binc, timeout))
+                .handleAsync((move, error) -> {
+                    if (error != null) {
+                        Chess.LOGGER.warn("UCI engine {} failed to return a move", pool.getEnginePath(), error);
+                        return null;
                     }
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
+                    return closed ? null : move;
+                }, CALLBACKS);
+    }
+
+    private CompletableFuture<String> search(UciProcess process, String fen, long wtime, long btime, long winc,
+            long binc, long timeout) {
+        synchronized (this) {
+            if (closed) {
+                pool.release(process, true);
+                return CompletableFuture.completedFuture(null);
             }
-            return null;
-        });
+            leased = process;
+        }
+        return process.newGame(gameId)
+                .thenCompose(ignored -> process.bestMove(fen, wtime, btime, winc, binc, timeout))
+                .whenComplete((move, error) -> {
+                    synchronized (this) {
+                        leased = null;
+                    }
+                    pool.release(process, error == null);
+                });
     }
 
-    public void close() {
-        if (process != null) {
-            process.destroy();
+    // Cuts a running search short; its process goes back to the pool once it answers
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (leased != null) {
+            leased.stop();
         }
     }
 }
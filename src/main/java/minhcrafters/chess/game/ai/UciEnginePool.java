@@ -0,0 +1,160 @@
+package minhcrafters.chess.game.ai;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Server-wide set of UCI engine processes. A search leases a process only while it runs, so any
+// number of AI boards need no more processes than searches running at once, and never more than
+// the pool size. Processes left idle past the timeout are shut down.
+public final class UciEnginePool {
+    private static final ScheduledExecutorService REAPER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Chess UCI Reaper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static UciEnginePool shared;
+
+    private final String enginePath;
+    private final int size;
+    private final int idleTimeoutSeconds;
+    private final ScheduledFuture<?> reaping;
+
+    // All guarded by this. Idle processes are most recently used first, so surplus ones sink to
+    // the end and time out; searches beyond the pool size queue for the next free slot.
+    private final Deque<UciProcess> idle = new ArrayDeque<>();
+    private final Deque<CompletableFuture<UciProcess>> waiting = new ArrayDeque<>();
+    private int leased;
+    private boolean closed;
+
+    public UciEnginePool(String enginePath, int size, int idleTimeoutSeconds) {
+        this.enginePath = enginePath;
+        this.size = Math.max(1, size);
+        this.idleTimeoutSeconds = Math.max(1, idleTimeoutSeconds);
+        this.reaping = REAPER.scheduleWithFixedDelay(this::reapIdle, this.idleTimeoutSeconds,
+                this.idleTimeoutSeconds, TimeUnit.SECONDS);
+    }
+
+    // Replaced when the configured engine or limits change; the old pool still serves the
+    // searches already queued on it, and shuts each process down once nothing is waiting
+    public static synchronized UciEnginePool shared(String enginePath, int size, int idleTimeoutSeconds) {
+        if (shared == null || !shared.enginePath.equals(enginePath) || shared.size != Math.max(1, size)
+                || shared.idleTimeoutSeconds != Math.max(1, idleTimeoutSeconds)) {
+            if (shared != null) {
+                shared.close();
+            }
+            shared = new UciEnginePool(enginePath, size, idleTimeoutSeconds);
+        }
+        return shared;
+    }
+
+    public String getEnginePath() {
+        return enginePath;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    // Completes with a live idle process, a newly started one, or the next one released if every
+    // slot is in use. A failed lease holds no slot.
+    CompletableFuture<UciProcess> lease() {
+        synchronized (this) {
+            if (leased >= size) {
+                CompletableFuture<UciProcess> future = new CompletableFuture<>();
+                waiting.addLast(future);
+                return future;
+            }
+            leased++;
+            UciProcess process;
+            while ((process = idle.pollFirst()) != null) {
+                if (process.isAlive()) {
+                    return CompletableFuture.completedFuture(process);
+                }
+                // Crashed or was killed while idle; the slot gets a fresh process instead
+                process.destroy();
+            }
+        }
+        return startInSlot();
+    }
+
+    // A process that failed mid-search is discarded rather than handed to the next game
+    void release(UciProcess process, boolean healthy) {
+        if (!healthy || !process.isAlive()) {
+            process.destroy();
+            freeSlot();
+            return;
+        }
+        CompletableFuture<UciProcess> next;
+        synchronized (this) {
+            next = waiting.pollFirst();
+            if (next == null) {
+                leased--;
+                if (!closed) {
+                    process.markIdle();
+                    idle.addFirst(process);
+                    return;
+                }
+            }
+        }
+        // The slot passes straight to the next waiting search
+        if (next != null) {
+            next.complete(process);
+        } else {
+            process.destroy();
+        }
+    }
+
+    public void close() {
+        reaping.cancel(false);
+        synchronized (this) {
+            closed = true;
+            for (UciProcess process : idle) {
+                process.destroy();
+            }
+            idle.clear();
+        }
+    }
+
+    // Starts a process for a slot already counted in leased, giving the slot up if it fails
+    private CompletableFuture<UciProcess> startInSlot() {
+        return UciProcess.start(enginePath).whenComplete((process, error) -> {
+            if (error != null) {
+                freeSlot();
+            }
+        });
+    }
+
+    private void freeSlot() {
+        CompletableFuture<UciProcess> next;
+        synchronized (this) {
+            next = waiting.pollFirst();
+            if (next == null) {
+                leased--;
+                return;
+            }
+        }
+        startInSlot().whenComplete((started, error) -> {
+            if (error != null) {
+                next.completeExceptionally(error);
+            } else {
+                next.complete(started);
+            }
+        });
+    }
+
+    private synchronized void reapIdle() {
+        long cutoff = System.nanoTime() - TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+        while (!idle.isEmpty() && idle.peekLast().getIdleSince() - cutoff <= 0) {
+            idle.pollLast().destroy();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package minhcrafters.chess.game.ai;
+
+// One line of UCI engine output, parsed by the process's reader loop
+final class UciEvent {
+    enum Type {
+        UCI_OK, READY_OK, INFO, BEST_MOVE, OTHER
+    }
+
+    private final Type type;
+    private final String line;
+    private final String move;
+
+    private UciEvent(Type type, String line, String move) {
+        this.type = type;
+        this.line = line;
+        this.move = move;
+    }
+
+    static UciEvent parse(String line) {
+        String trimmed = line.trim();
+        if (trimmed.equals("uciok")) {
+            return new UciEvent(Type.UCI_OK, line, null);
+        }
+        if (trimmed.equals("readyok")) {
+            return new UciEvent(Type.READY_OK, line, null);
+        }
+        if (trimmed.startsWith("info")) {
+            return new UciEvent(Type.INFO, line, null);
+        }
+        if (trimmed.startsWith("bestmove")) {
+            // "bestmove (none)" is sent when the side to move has no legal moves
+            String[] parts = trimmed.split("\\s+");
+            String move = parts.length > 1 && !parts[1].equals("(none)") ? parts[1] : null;
+            return new UciEvent(Type.BEST_MOVE, line, move);
+        }
+        return new UciEvent(Type.OTHER, line, null);
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    String getLine() {
+        return line;
+    }
+
+    // The move of a bestmove line, or null if the engine had none
+    String getMove() {
+        return move;
+    }
+}
@@ -0,0 +1,171 @@
+package minhcrafters.chess.game.ai;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// One running UCI engine process. A reader loop turns its output into UciEvents and completes
+// whichever command is waiting for that kind of event; a writer loop sends queued commands in
+// order. Both run on virtual threads, so callers only ever get futures and never block on the
+// engine. Only the search that has leased the process from a UciEnginePool sends commands,
+// apart from stop(), which may come from any thread.
+final class UciProcess {
+    // How long a healthy engine may take to answer uci or isready
+    private static final long HANDSHAKE_TIMEOUT_MS = 10_000;
+
+    private final Process process;
+    private final BlockingQueue<String> outgoing = new LinkedBlockingQueue<>();
+    // At most one command waits for each kind of reply; guarded by itself
+    private final Map<UciEvent.Type, CompletableFuture<UciEvent>> pending = new EnumMap<>(UciEvent.Type.class);
+    private final Thread writerThread;
+    private volatile boolean alive = true;
+    // The game whose position the engine last searched, so its hash is only cleared between games
+    private UUID gameId;
+    private long idleSince;
+
+    private UciProcess(Process process) {
+        this.process = process;
+        Thread.ofVirtual().name("Chess UCI Reader").start(this::readLoop);
+        this.writerThread = Thread.ofVirtual().name("Chess UCI Writer").start(this::writeLoop);
+    }
+
+    // Completes once the engine has answered uciok and readyok
+    static CompletableFuture<UciProcess> start(String enginePath) {
+        UciProcess engine;
+        try {
+            engine = new UciProcess(new ProcessBuilder(enginePath).start());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return engine.request("uci", UciEvent.Type.UCI_OK, HANDSHAKE_TIMEOUT_MS)
+                .thenCompose(ignored -> engine.request("isready", UciEvent.Type.READY_OK, HANDSHAKE_TIMEOUT_MS))
+                .handle((ignored, error) -> {
+                    if (error != null) {
+                        engine.destroy();
+                        throw new IllegalStateException("UCI engine " + enginePath + " failed to start", error);
+                    }
+                    return engine;
+                });
+    }
+
+    CompletableFuture<Void> newGame(UUID gameId) {
+        if (gameId.equals(this.gameId)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        send("ucinewgame");
+        return request("isready", UciEvent.Type.READY_OK, HANDSHAKE_TIMEOUT_MS)
+                .thenAccept(ignored -> this.gameId = gameId);
+    }
+
+    // Completes with the engine's move, or null if it had none. A search that outlives the
+    // timeout fails, and the caller should discard the process.
+    CompletableFuture<String> bestMove(String fen, long wtime, long btime, long winc, long binc, long timeoutMs) {
+        send("position fen " + fen);
+        return request(String.format("go wtime %d btime %d winc %d binc %d", wtime, btime, winc, binc),
+                UciEvent.Type.BEST_MOVE, timeoutMs)
+                .thenApply(UciEvent::getMove);
+    }
+
+    // Asks the engine to answer now with the best move it has found so far
+    void stop() {
+        send("stop");
+    }
+
+    boolean isAlive() {
+        return alive && process.isAlive();
+    }
+
+    long getIdleSince() {
+        return idleSince;
+    }
+
+    void markIdle() {
+        idleSince = System.nanoTime();
+    }
+
+    void destroy() {
+        alive = false;
+        process.destroy();
+        writerThread.interrupt();
+    }
+
+    private void send(String command) {
+        outgoing.add(command);
+    }
+
+    // Registers for the reply before sending, so a fast engine cannot answer first
+    private CompletableFuture<UciEvent> request(String command, UciEvent.Type reply, long timeoutMs) {
+        CompletableFuture<UciEvent> future = new CompletableFuture<>();
+        synchronized (pending) {
+            if (!alive) {
+                return CompletableFuture.failedFuture(new IOException("UCI engine is not running"));
+            }
+            CompletableFuture<UciEvent> previous = pending.put(reply, future);
+            if (previous != null) {
+                previous.completeExceptionally(new IllegalStateException("Superseded by " + command));
+            }
+        }
+        send(command);
+        return future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void readLoop() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                dispatch(UciEvent.parse(line));
+            }
+        } catch (IOException ignored) {
+            // Same as the engine exiting
+        }
+        fail(new IOException("UCI engine exited"));
+    }
+
+    private void dispatch(UciEvent event) {
+        // Search info is parsed but nothing consumes it yet
+        CompletableFuture<UciEvent> future;
+        synchronized (pending) {
+            future = pending.remove(event.getType());
+        }
+        if (future != null) {
+            future.complete(event);
+        }
+    }
+
+    private void writeLoop() {
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()))) {
+            while (true) {
+                writer.write(outgoing.take());
+                writer.write('\n');
+                // Batch commands queued together, such as position and go, into one flush
+                if (outgoing.isEmpty()) {
+                    writer.flush();
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            // Destroyed
+        }
+    }
+
+    private void fail(IOException error) {
+        alive = false;
+        process.destroy();
+        synchronized (pending) {
+            for (CompletableFuture<UciEvent> future : pending.values()) {
+                future.completeExceptionally(error);
+            }
+            pending.clear();
+        }
+    }
+}
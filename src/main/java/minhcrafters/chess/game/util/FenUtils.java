@@ -6,9 +6,14 @@ import minhcrafters.chess.game.Piece.PieceColor;
 import minhcrafters.chess.game.Piece.PieceType;
 
 public class FenUtils {
-    public static String getFen(Board board, PieceColor activeColor) {
-        StringBuilder fen = new StringBuilder();
+    public static String getFen(Board board, int fullmoveNumber) {
+        StringBuilder fen = new StringBuilder(96);
+        appendFen(fen, board, fullmoveNumber);
+        return fen.toString();
+    }
 
+    // Writes into a caller-owned buffer so callers writing FEN every ply can reuse it
+    public static void appendFen(StringBuilder fen, Board board, int fullmoveNumber) {
         // Piece placement
         for (int row = 7; row >= 0; row--) {
             int emptyCount = 0;
@@ -33,70 +38,218 @@ public class FenUtils {
         }
 
         // Active color
-        fen.append(' ').append(activeColor == PieceColor.WHITE ? 'w' : 'b');
+        fen.append(' ').append(board.getSideToMove() == PieceColor.WHITE ? 'w' : 'b');
 
         // Castling availability
         fen.append(' ');
-        StringBuilder castling = new StringBuilder();
-
-        // White
-        Piece whiteKing = board.getPiece(0, 4); // Assuming standard setup
-        if (whiteKing != null && whiteKing.getType() == PieceType.KING && !whiteKing.hasMoved()) {
-            Piece whiteRookKing = board.getPiece(0, 7);
-            if (whiteRookKing != null && whiteRookKing.getType() == PieceType.ROOK && !whiteRookKing.hasMoved()) {
-                castling.append('K');
-            }
-            Piece whiteRookQueen = board.getPiece(0, 0);
-            if (whiteRookQueen != null && whiteRookQueen.getType() == PieceType.ROOK && !whiteRookQueen.hasMoved()) {
-                castling.append('Q');
-            }
+        int castling = board.getCastlingRights();
+        if (castling == 0) {
+            fen.append('-');
+        } else {
+            if ((castling & Board.WHITE_KINGSIDE) != 0)
+                fen.append('K');
+            if ((castling & Board.WHITE_QUEENSIDE) != 0)
+                fen.append('Q');
+            if ((castling & Board.BLACK_KINGSIDE) != 0)
+                fen.append('k');
+            if ((castling & Board.BLACK_QUEENSIDE) != 0)
+                fen.append('q');
+        }
+
+        // En passant target square
+        fen.append(' ');
+        int enPassant = board.getEnPassantSquare();
+        if (enPassant >= 0) {
+            fen.append((char) ('a' + (enPassant & 7))).append((enPassant >>> 3) + 1);
+        } else {
+            fen.append('-');
+        }
+
+        // Halfmove clock and fullmove number
+        fen.append(' ').append(board.getHalfmoveClock());
+        fen.append(' ').append(fullmoveNumber);
+    }
+
+    public static Board parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 2) {
+            throw new IllegalArgumentException("FEN needs at least piece placement and side to move: " + fen);
         }
 
-        // Black
-        Piece blackKing = board.getPiece(7, 4);
-        if (blackKing != null && blackKing.getType() == PieceType.KING && !blackKing.hasMoved()) {
-            Piece blackRookKing = board.getPiece(7, 7);
-            if (blackRookKing != null && blackRookKing.getType() == PieceType.ROOK && !blackRookKing.hasMoved()) {
-                castling.append('k');
+        Board board = Board.empty();
+
+        // Piece placement, rank 8 first
+        String[] ranks = fields[0].split("/");
+        if (ranks.length != 8) {
+            throw new IllegalArgumentException("FEN piece placement must have 8 ranks: " + fields[0]);
+        }
+        for (int i = 0; i < 8; i++) {
+            int row = 7 - i;
+            int col = 0;
+            for (char c : ranks[i].toCharArray()) {
+                if (c >= '1' && c <= '8') {
+                    col += c - '0';
+                } else {
+                    if (col > 7) {
+                        throw new IllegalArgumentException("FEN rank " + (row + 1) + " has more than 8 squares");
+                    }
+                    board.setPiece(row, col++, getPiece(c));
+                }
             }
-            Piece blackRookQueen = board.getPiece(7, 0);
-            if (blackRookQueen != null && blackRookQueen.getType() == PieceType.ROOK && !blackRookQueen.hasMoved()) {
-                castling.append('q');
+            if (col != 8) {
+                throw new IllegalArgumentException("FEN rank " + (row + 1) + " does not have 8 squares");
             }
         }
+        if (Long.bitCount(board.getPieces(PieceType.KING, PieceColor.WHITE)) != 1
+                || Long.bitCount(board.getPieces(PieceType.KING, PieceColor.BLACK)) != 1) {
+            throw new IllegalArgumentException("FEN must have exactly one king per side");
+        }
+        // A pawn can neither stand on its own back rank nor stay unpromoted on the last one
+        long backRanks = 0xFFL | 0xFFL << 56;
+        if (((board.getPieces(PieceType.PAWN, PieceColor.WHITE) | board.getPieces(PieceType.PAWN, PieceColor.BLACK))
+                & backRanks) != 0) {
+            throw new IllegalArgumentException("FEN has a pawn on the first or last rank");
+        }
 
-        if (castling.length() == 0) {
-            fen.append('-');
-        } else {
-            fen.append(castling);
+        // Active color
+        switch (fields[1]) {
+            case "w":
+                board.setSideToMove(PieceColor.WHITE);
+                break;
+            case "b":
+                board.setSideToMove(PieceColor.BLACK);
+                break;
+            default:
+                throw new IllegalArgumentException("FEN side to move must be 'w' or 'b': " + fields[1]);
         }
 
+        // Castling availability
+        int castling = 0;
+        if (fields.length > 2 && !fields[2].equals("-")) {
+            for (char c : fields[2].toCharArray()) {
+                switch (c) {
+                    case 'K':
+                        castling |= Board.WHITE_KINGSIDE;
+                        break;
+                    case 'Q':
+                        castling |= Board.WHITE_QUEENSIDE;
+                        break;
+                    case 'k':
+                        castling |= Board.BLACK_KINGSIDE;
+                        break;
+                    case 'q':
+                        castling |= Board.BLACK_QUEENSIDE;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown FEN castling flag: " + c);
+                }
+            }
+        }
+        board.setCastlingRights(castling & possibleCastlingRights(board));
+
         // En passant target square
-        fen.append(' ');
-        if (board.getLastMove() != null) {
-            int fromRow = board.getLastMove().getFromRow();
-            int toRow = board.getLastMove().getToRow();
-            int toCol = board.getLastMove().getToCol();
-            Piece movedPiece = board.getPiece(toRow, toCol);
-
-            if (movedPiece != null && movedPiece.getType() == PieceType.PAWN && Math.abs(toRow - fromRow) == 2) {
-                int enPassantRow = (fromRow + toRow) / 2;
-                char file = (char) ('a' + toCol);
-                fen.append(file).append(enPassantRow + 1);
-            } else {
-                fen.append('-');
+        if (fields.length > 3 && !fields[3].equals("-")) {
+            String square = fields[3];
+            char rank = board.getSideToMove() == PieceColor.WHITE ? '6' : '3';
+            if (square.length() != 2 || square.charAt(0) < 'a' || square.charAt(0) > 'h'
+                    || square.charAt(1) != rank) {
+                throw new IllegalArgumentException("Invalid FEN en passant square: " + square);
             }
-        } else {
-            fen.append('-');
+            int row = square.charAt(1) - '1';
+            int col = square.charAt(0) - 'a';
+            // The pawn that just moved two squares stands in front of the target, seen from
+            // the side that moved it, and both the target and its starting square are empty
+            PieceColor moved = board.getSideToMove().opposite();
+            int forward = moved == PieceColor.WHITE ? 1 : -1;
+            if (board.getPiece(row, col) != null || board.getPiece(row - forward, col) != null
+                    || !isPiece(board, row + forward, col, PieceType.PAWN, moved)) {
+                throw new IllegalArgumentException("FEN en passant square " + square + " does not follow a double pawn push");
+            }
+            board.setEnPassantSquare(row * 8 + col);
+        }
+
+        // The side that just moved cannot have left its own king in check
+        PieceColor waiting = board.getSideToMove().opposite();
+        if (board.isSquareAttacked(board.getKingSquare(waiting), board.getSideToMove())) {
+            throw new IllegalArgumentException("FEN side not to move is in check");
         }
 
         // Halfmove clock
-        fen.append(" 0"); // TODO: Placeholder
+        if (fields.length > 4) {
+            board.setHalfmoveClock(parseCounter(fields[4], 0, "halfmove clock"));
+        }
 
-        // Fullmove number
-        fen.append(" 1"); // TODO: Placeholder
+        return board;
+    }
 
-        return fen.toString();
+    // The fullmove number lives with the game rather than the board; 1 when the field is missing
+    public static int parseFullmoveNumber(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        return fields.length > 5 ? parseCounter(fields[5], 1, "fullmove number") : 1;
+    }
+
+    private static int parseCounter(String field, int min, String name) {
+        int value;
+        try {
+            value = Integer.parseInt(field);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid FEN " + name + ": " + field);
+        }
+        if (value < min) {
+            throw new IllegalArgumentException("Invalid FEN " + name + ": " + field);
+        }
+        return value;
+    }
+
+    // Drops rights whose king or rook is not on its home square, so move generation
+    // never has to deal with a castling move that has no rook
+    private static int possibleCastlingRights(Board board) {
+        int rights = 0;
+        if (isPiece(board, 0, 4, PieceType.KING, PieceColor.WHITE)) {
+            if (isPiece(board, 0, 7, PieceType.ROOK, PieceColor.WHITE))
+                rights |= Board.WHITE_KINGSIDE;
+            if (isPiece(board, 0, 0, PieceType.ROOK, PieceColor.WHITE))
+                rights |= Board.WHITE_QUEENSIDE;
+        }
+        if (isPiece(board, 7, 4, PieceType.KING, PieceColor.BLACK)) {
+            if (isPiece(board, 7, 7, PieceType.ROOK, PieceColor.BLACK))
+                rights |= Board.BLACK_KINGSIDE;
+            if (isPiece(board, 7, 0, PieceType.ROOK, PieceColor.BLACK))
+                rights |= Board.BLACK_QUEENSIDE;
+        }
+        return rights;
+    }
+
+    private static boolean isPiece(Board board, int row, int col, PieceType type, PieceColor color) {
+        Piece piece = board.getPiece(row, col);
+        return piece != null && piece.getType() == type && piece.getColor() == color;
+    }
+
+    private static Piece getPiece(char c) {
+        PieceType type;
+        switch (Character.toLowerCase(c)) {
+            case 'p':
+                type = PieceType.PAWN;
+                break;
+            case 'n':
+                type = PieceType.KNIGHT;
+                break;
+            case 'b':
+                type = PieceType.BISHOP;
+                break;
+            case 'r':
+                type = PieceType.ROOK;
+                break;
+            case 'q':
+                type = PieceType.QUEEN;
+                break;
+            case 'k':
+                type = PieceType.KING;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown FEN piece: " + c);
+        }
+        return Piece.of(type, Character.isUpperCase(c) ? PieceColor.WHITE : PieceColor.BLACK);
     }
 
     private static char getPieceChar(Piece piece) {
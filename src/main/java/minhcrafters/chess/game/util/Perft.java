@@ -0,0 +1,176 @@
+package minhcrafters.chess.game.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import minhcrafters.chess.game.Board;
+import minhcrafters.chess.game.Move;
+import minhcrafters.chess.game.MoveList;
+
+public class Perft {
+    // Counts leaf nodes of the legal move tree; the standard check for move generator correctness and speed
+    public static long perft(Board board, int depth) {
+        if (depth <= 0) {
+            return 1;
+        }
+        return perft(board, depth, newMoveLists(depth));
+    }
+
+    // Like perft, but also reports the node count below each root move
+    public static Result divide(Board board, int depth) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("Perft depth must be at least 1");
+        }
+
+        MoveList[] lists = newMoveLists(depth);
+        MoveList rootMoves = lists[depth];
+        Map<String, Long> divide = new LinkedHashMap<>();
+        long nodes = 0;
+
+        long start = System.nanoTime();
+        board.generateLegalMoves(rootMoves);
+        for (int i = 0; i < rootMoves.size(); i++) {
+            int move = rootMoves.get(i);
+            long count;
+            if (depth == 1) {
+                count = 1;
+            } else {
+                board.makeMove(move);
+                count = perft(board, depth - 1, lists);
+                board.unmakeMove();
+            }
+            divide.put(Move.toString(move), count);
+            nodes += count;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        return new Result(depth, nodes, elapsed, divide, 1);
+    }
+
+    // Divide with each root move searched as its own task on the pool. Every task works on its
+    // own copy of the board, so nothing mutable is shared between workers.
+    public static Result divideParallel(Board board, int depth, ForkJoinPool pool) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("Perft depth must be at least 1");
+        }
+
+        long start = System.nanoTime();
+        MoveList rootMoves = new MoveList();
+        board.generateLegalMoves(rootMoves);
+
+        List<RootMoveTask> tasks = new ArrayList<>(rootMoves.size());
+        for (int i = 0; i < rootMoves.size(); i++) {
+            tasks.add(new RootMoveTask(board.copy(), rootMoves.get(i), depth - 1));
+        }
+        pool.invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                ForkJoinTask.invokeAll(tasks);
+                return null;
+            }
+        });
+
+        Map<String, Long> divide = new LinkedHashMap<>();
+        long nodes = 0;
+        for (RootMoveTask task : tasks) {
+            long count = task.join();
+            divide.put(Move.toString(task.move), count);
+            nodes += count;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        return new Result(depth, nodes, elapsed, divide, pool.getParallelism());
+    }
+
+    static long perft(Board board, int depth, MoveList[] lists) {
+        MoveList moves = lists[depth];
+        board.generateLegalMoves(moves);
+
+        // Legal moves at the last ply are the leaves, no need to make them
+        if (depth == 1) {
+            return moves.size();
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            nodes += perft(board, depth - 1, lists);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+
+    static MoveList[] newMoveLists(int depth) {
+        MoveList[] lists = new MoveList[depth + 1];
+        for (int i = 0; i <= depth; i++) {
+            lists[i] = new MoveList();
+        }
+        return lists;
+    }
+
+    private static final class RootMoveTask extends RecursiveTask<Long> {
+        private final Board board;
+        private final int move;
+        private final int depth;
+
+        RootMoveTask(Board board, int move, int depth) {
+            this.board = board;
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth == 0) {
+                return 1L;
+            }
+            board.makeMove(move);
+            return perft(board, depth, newMoveLists(depth));
+        }
+    }
+
+    public static class Result {
+        private final int depth;
+        private final long nodes;
+        private final long elapsedNanos;
+        private final Map<String, Long> divide;
+        private final int threads;
+
+        public Result(int depth, long nodes, long elapsedNanos, Map<String, Long> divide, int threads) {
+            this.depth = depth;
+            this.nodes = nodes;
+            this.elapsedNanos = elapsedNanos;
+            this.divide = divide;
+            this.threads = threads;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getNodesPerSecond() {
+            return elapsedNanos == 0 ? 0 : (long) (nodes * 1_000_000_000.0 / elapsedNanos);
+        }
+
+        public Map<String, Long> getDivide() {
+            return divide;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+    }
+}
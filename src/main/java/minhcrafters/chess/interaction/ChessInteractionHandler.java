@@ -132,7 +132,11 @@ public class ChessInteractionHandler {
                     // Highlight valid moves
                     List<int[]> validSquares = new ArrayList<>();
                     for (Move move : legalMoves) {
-                        validSquares.add(new int[] { move.getToRow(), move.getToCol() });
+                        // Each promotion square appears once per promotion piece, highlight it once
+                        Piece.PieceType promotion = move.getPromotionType();
+                        if (promotion == null || promotion == Piece.PieceType.QUEEN) {
+                            validSquares.add(new int[] { move.getToRow(), move.getToCol() });
+                        }
                     }
 
                     if (ChessConfig.HANDLER.instance().showLegalMoves) {
@@ -207,6 +211,12 @@ public class ChessInteractionHandler {
                         spawnCheckmateParticles(world, game, boardCenter);
                     } else if (game.getState() == ChessGame.GameState.STALEMATE) {
                         broadcastToGame(world, game, Text.literal("§6§lStalemate! Draw!"));
+                    } else if (game.getState() == ChessGame.GameState.DRAW_REPETITION) {
+                        broadcastToGame(world, game, Text.literal("§6§lThreefold repetition! Draw!"));
+                    } else if (game.getState() == ChessGame.GameState.DRAW_FIFTY_MOVES) {
+                        broadcastToGame(world, game, Text.literal("§6§lFifty-move rule! Draw!"));
+                    } else if (game.getState() == ChessGame.GameState.DRAW_INSUFFICIENT_MATERIAL) {
+                        broadcastToGame(world, game, Text.literal("§6§lInsufficient material! Draw!"));
                     } else {
                         String turn = game.getCurrentPlayer() == Piece.PieceColor.WHITE ? "White" : "Black";
                         broadcastToGame(world, game, Text.literal("§7" + turn + "'s turn"));
@@ -247,11 +257,11 @@ public class ChessInteractionHandler {
     }
 
     private void spawnCheckParticles(ServerWorld world, ChessGame game, BlockPos boardCenter) {
-        int[] kingPos = game.getBoard().findKing(game.getCurrentPlayer());
-        if (kingPos != null) {
-            double x = boardCenter.getX() + kingPos[1] + 0.5;
+        int king = game.getBoard().getKingSquare(game.getCurrentPlayer());
+        if (king >= 0) {
+            double x = boardCenter.getX() + (king & 7) + 0.5;
             double y = boardCenter.getY() + 1.5;
-            double z = boardCenter.getZ() + kingPos[0] + 0.5;
+            double z = boardCenter.getZ() + (king >>> 3) + 0.5;
 
             world.spawnParticles(ParticleTypes.ANGRY_VILLAGER, x, y, z, 5, 0.3, 0.3, 0.3, 0.1);
             world.playSound(null, x, y, z, SoundEvents.BLOCK_NOTE_BLOCK_BELL, SoundCategory.PLAYERS, 1.0f, 1.0f);
@@ -260,11 +270,11 @@ public class ChessInteractionHandler {
 
     private void spawnCheckmateParticles(ServerWorld world, ChessGame game, BlockPos boardCenter) {
         // Find the losing king
-        int[] kingPos = game.getBoard().findKing(game.getCurrentPlayer());
-        if (kingPos != null) {
-            double x = boardCenter.getX() + kingPos[1] + 0.5;
+        int king = game.getBoard().getKingSquare(game.getCurrentPlayer());
+        if (king >= 0) {
+            double x = boardCenter.getX() + (king & 7) + 0.5;
             double y = boardCenter.getY() + 1.0;
-            double z = boardCenter.getZ() + kingPos[0] + 0.5;
+            double z = boardCenter.getZ() + (king >>> 3) + 0.5;
 
             world.spawnParticles(ParticleTypes.TOTEM_OF_UNDYING, x, y, z, 50, 0.5, 0.5, 0.5, 0.5);
             world.playSound(null, x, y, z, SoundEvents.UI_TOAST_CHALLENGE_COMPLETE, SoundCategory.PLAYERS, 1.0f, 1.0f);
@@ -0,0 +1,124 @@
+package minhcrafters.chess.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import minhcrafters.chess.game.util.FenUtils;
+
+class BoardTest {
+    @Test
+    void incrementalHashMatchesRecomputedHashInRandomGames() {
+        Random random = new Random(1);
+        for (int game = 0; game < 100; game++) {
+            Board board = new Board();
+            for (int ply = 0; ply < 150; ply++) {
+                List<Move> moves = moves(board);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                long before = board.getHash();
+                for (Move move : moves) {
+                    board.makeMove(move);
+                    assertEquals(board.computeHash(), board.getHash(), () -> "after " + move);
+                    board.unmakeMove();
+                    assertEquals(before, board.getHash(), () -> "after undoing " + move);
+                }
+                board.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+        }
+    }
+
+    @Test
+    void transpositionsShareHash() {
+        Board board = new Board();
+        long start = board.getHash();
+        play(board, "g1f3", "g8f6", "f3g1", "f6g8");
+        assertEquals(start, board.getHash());
+
+        Board first = new Board();
+        play(first, "e2e4", "e7e5", "g1f3", "b8c6");
+        Board second = new Board();
+        play(second, "g1f3", "e7e5", "e2e4", "b8c6");
+        assertEquals(first.getHash(), second.getHash());
+    }
+
+    // The en passant file only counts while a pawn can actually take on the square
+    @Test
+    void enPassantSquareNobodyCanTakeDoesNotChangeHash() {
+        Board board = new Board();
+        play(board, "e2e4");
+        long afterPush = board.getHash();
+        play(board, "g8f6", "g1f3", "f6g8", "f3g1");
+        assertEquals(afterPush, board.getHash());
+
+        Board capturable = FenUtils.parse("4k3/8/8/8/5p2/8/4P3/4K3 w - - 0 1");
+        play(capturable, "e2e4", "e8d8", "e1d1", "d8e8", "d1e1");
+        Board pushed = FenUtils.parse("4k3/8/8/8/5p2/8/4P3/4K3 w - - 0 1");
+        play(pushed, "e2e4");
+        assertEquals(capturable.computeHash(), capturable.getHash());
+        assertEquals(FenUtils.parse("4k3/8/8/8/4Pp2/8/8/4K3 b - - 0 1").getHash(), capturable.getHash());
+        assertNotEquals(pushed.getHash(), capturable.getHash());
+    }
+
+    // The totals kept through make and unmake must match a board built from scratch
+    @Test
+    void taperedScoreMatchesFreshBoard() {
+        Random random = new Random(2);
+        for (int game = 0; game < 20; game++) {
+            Board board = new Board();
+            assertEquals(0, board.getTaperedScore());
+            for (int ply = 0; ply < 150; ply++) {
+                List<Move> moves = moves(board);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                board.makeMove(moves.get(random.nextInt(moves.size())));
+                Board fresh = FenUtils.parse(FenUtils.getFen(board, 1));
+                assertEquals(fresh.getTaperedScore(), board.getTaperedScore());
+            }
+        }
+    }
+
+    // Every move of the side to move except king captures, which a generator that does not
+    // filter checks would offer
+    static List<Move> moves(Board board) {
+        List<Move> moves = new ArrayList<>();
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                for (Move move : board.getLegalMoves(row, col, board.getSideToMove())) {
+                    Piece target = board.getPiece(move.getToRow(), move.getToCol());
+                    if (target == null || target.getType() != Piece.PieceType.KING) {
+                        moves.add(move);
+                    }
+                }
+            }
+        }
+        return moves;
+    }
+
+    // Plays moves given as from and to squares, such as "e2e4"
+    static void play(Board board, String... squares) {
+        for (String uci : squares) {
+            int fromCol = uci.charAt(0) - 'a';
+            int fromRow = uci.charAt(1) - '1';
+            int toCol = uci.charAt(2) - 'a';
+            int toRow = uci.charAt(3) - '1';
+            Move found = null;
+            for (Move move : board.getLegalMoves(fromRow, fromCol, board.getSideToMove())) {
+                if (move.getToRow() == toRow && move.getToCol() == toCol) {
+                    found = move;
+                }
+            }
+            if (found == null) {
+                throw new IllegalArgumentException("Illegal move " + uci);
+            }
+            board.makeMove(found);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package minhcrafters.chess.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import minhcrafters.chess.game.ai.ChessEngine;
+import minhcrafters.chess.game.ai.PolyglotBook;
+
+class ChessGameTest {
+    // The position after 1.e4 comes back twice, even though only the first time follows a double push
+    @Test
+    void repetitionAfterDoublePushIsDrawn() {
+        ChessGame game = new ChessGame(UUID.randomUUID(), new Board(), 12_000, 0, 1);
+        play(game, "e2e4", "g8f6", "g1f3", "f6g8", "f3g1", "g8f6", "g1f3", "f6g8");
+        assertEquals(ChessGame.GameState.ACTIVE, game.getState());
+        play(game, "f3g1");
+        assertEquals(ChessGame.GameState.DRAW_REPETITION, game.getState());
+    }
+
+    @Test
+    void illegalBookMoveFallsBackToEngine(@TempDir Path dir) throws IOException {
+        // e2e5, which no pawn can play
+        Path file = writeBook(dir, 0x463b96181691fc9cL, (1 << 9) | (4 << 6) | (4 << 3) | 4);
+
+        ChessGame game = new ChessGame(UUID.randomUUID(), new Board(), 12_000, 0, 1);
+        game.setOpeningBook(PolyglotBook.open(file));
+        game.addAi(new FixedEngine("d2d4"), Piece.PieceColor.WHITE, null);
+        game.tick(1);
+        assertEquals(Piece.PieceType.PAWN, game.getBoard().getPiece(3, 3).getType());
+        assertEquals(Piece.PieceColor.BLACK, game.getCurrentPlayer());
+    }
+
+    // The reply must not land while the human's makeMove is still running, or on another thread
+    @Test
+    void bookReplyIsPlayedOnTheNextTick(@TempDir Path dir) throws IOException {
+        // e7e5 after 1.e4
+        Path file = writeBook(dir, 0x823c9b50fd114196L, (6 << 9) | (4 << 6) | (4 << 3) | 4);
+
+        ChessGame game = new ChessGame(UUID.randomUUID(), new Board(), 12_000, 0, 1);
+        game.setOpeningBook(PolyglotBook.open(file));
+        game.addAi(new FixedEngine("a7a6"), Piece.PieceColor.BLACK, null);
+        play(game, "e2e4");
+        assertEquals(Piece.PieceColor.BLACK, game.getCurrentPlayer());
+
+        game.tick(1);
+        assertEquals(Piece.PieceColor.WHITE, game.getCurrentPlayer());
+        assertEquals(Piece.PieceType.PAWN, game.getBoard().getPiece(4, 4).getType());
+        assertEquals(Piece.PieceColor.BLACK, game.getBoard().getPiece(4, 4).getColor());
+    }
+
+    // A one-entry Polyglot book
+    static Path writeBook(Path dir, long key, int move) throws IOException {
+        Path file = dir.resolve("book.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeLong(key);
+            out.writeShort(move);
+            out.writeShort(1);
+            out.writeInt(0);
+        }
+        return file;
+    }
+
+    // Plays moves given as from and to squares, such as "e2e4"
+    static void play(ChessGame game, String... uciMoves) {
+        for (String uci : uciMoves) {
+            int fromCol = uci.charAt(0) - 'a';
+            int fromRow = uci.charAt(1) - '1';
+            int toCol = uci.charAt(2) - 'a';
+            int toRow = uci.charAt(3) - '1';
+            assertTrue(game.makeMove(fromRow, fromCol, toRow, toCol), uci);
+        }
+    }
+
+    // Answers every search at once with the same move
+    private static final class FixedEngine implements ChessEngine {
+        private final String move;
+
+        FixedEngine(String move) {
+            this.move = move;
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public CompletableFuture<String> getBestMove(String fen, long wtime, long btime, long winc, long binc) {
+            return CompletableFuture.completedFuture(move);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package minhcrafters.chess.game.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import minhcrafters.chess.game.Board;
+import minhcrafters.chess.game.util.FenUtils;
+
+class PolyglotBookTest {
+    // Keys from the Polyglot book format description
+    @ParameterizedTest(name = "{1}")
+    @CsvSource(delimiter = '|', value = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1          | 463b96181691fc9c",
+            "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1       | 823c9b50fd114196",
+            "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2     | 0756b94461c50fb0",
+            "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2       | 662fafb965db29d4",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3     | 22a48b5a8e47ff78",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3        | 652a607ca3f242c1",
+            "rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4         | 00fdd303c946bdd9",
+            "rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3     | 3c8123ea7b067637",
+            "rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4      | 5c3f9b829b279560"
+    })
+    void matchesPublishedKeys(String fen, String key) {
+        assertEquals(Long.parseUnsignedLong(key, 16), PolyglotBook.key(FenUtils.parse(fen)));
+    }
+
+    @Test
+    void picksBookMovesAndDecodesCastling(@TempDir Path dir) throws IOException {
+        Board start = new Board();
+        Board castling = FenUtils.parse("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        Path file = dir.resolve("book.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            long[] keys = {PolyglotBook.key(start), PolyglotBook.key(castling)};
+            // e2e4, then e1h1: Polyglot stores castling as the king taking its rook
+            int[] moves = {(1 << 9) | (4 << 6) | (3 << 3) | 4, (4 << 6) | 7};
+            int first = Long.compareUnsigned(keys[0], keys[1]) < 0 ? 0 : 1;
+            for (int i : new int[] {first, 1 - first}) {
+                out.writeLong(keys[i]);
+                out.writeShort(moves[i]);
+                out.writeShort(1);
+                out.writeInt(0);
+            }
+        }
+
+        PolyglotBook book = PolyglotBook.open(file);
+        Random random = new Random(1);
+        assertEquals(2, book.size());
+        assertEquals("e2e4", book.pickMove(start, random));
+        assertEquals("e1g1", book.pickMove(castling, random));
+        assertNull(book.pickMove(FenUtils.parse("4k3/8/8/8/8/8/8/4K3 w - - 0 1"), random));
+    }
+
+    @Test
+    void refusesBooksTooLargeToMap(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("huge.bin");
+        // Sparse, so the test does not actually write 2 GB
+        try (RandomAccessFile out = new RandomAccessFile(file.toFile(), "rw")) {
+            out.setLength(Integer.MAX_VALUE + 16L);
+        }
+        assertThrows(IOException.class, () -> PolyglotBook.open(file));
+    }
+}
@@ -0,0 +1,54 @@
+package minhcrafters.chess.game.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import minhcrafters.chess.game.Board;
+import minhcrafters.chess.game.Move;
+import minhcrafters.chess.game.util.FenUtils;
+
+class SearchTest {
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @ParameterizedTest(name = "{1} in {0}")
+    @CsvSource(delimiter = '|', value = {
+            "rnbqkbnr/pppp1ppp/8/4p3/6P1/5P2/PPPPP2P/RNBQKBNR b KQkq g3 0 2        | d8h4",
+            "6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1                                      | a1a8",
+            "r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4   | h5f7",
+            "6k1/8/6K1/8/8/8/8/1R6 w - - 0 1                                        | b1b8"
+    })
+    void findsMateInOne(String fen, String mate) {
+        Search search = new Search(FenUtils.parse(fen), new TranspositionTable(16));
+        assertEquals(mate, Move.toString(search.search(10_000, 8)));
+        assertTrue(search.getBestScore() >= Search.MATE - Search.MAX_PLY);
+    }
+
+    @Test
+    void returnsNoMoveWhenMated() {
+        Board board = FenUtils.parse("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1");
+        assertEquals(Move.NONE, new Search(board, new TranspositionTable(16)).search(1_000, 8));
+    }
+
+    // A search reused for another position must behave exactly like a new one
+    @Test
+    void resetSearchMatchesFreshSearch() {
+        Search fresh = new Search(FenUtils.parse(KIWIPETE), new TranspositionTable(16));
+        int expected = fresh.search(60_000, 5);
+
+        Search reused = new Search(new Board(), new TranspositionTable(16));
+        reused.search(60_000, 5);
+        reused.reset(FenUtils.parse(KIWIPETE), new TranspositionTable(16), 0);
+        assertEquals(expected, reused.search(60_000, 5));
+        assertEquals(fresh.getNodes(), reused.getNodes());
+        assertEquals(fresh.getBestScore(), reused.getBestScore());
+    }
+
+    @Test
+    void benchNodeCountIsDeterministic() {
+        assertEquals(Bench.run(4).getNodes(), Bench.run(4).getNodes());
+    }
+}
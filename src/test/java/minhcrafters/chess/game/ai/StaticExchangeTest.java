@@ -0,0 +1,41 @@
+package minhcrafters.chess.game.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import minhcrafters.chess.game.Board;
+import minhcrafters.chess.game.Move;
+import minhcrafters.chess.game.MoveList;
+import minhcrafters.chess.game.util.FenUtils;
+
+class StaticExchangeTest {
+    @ParameterizedTest(name = "{1} >= {2} in {0}")
+    @CsvSource(delimiter = '|', value = {
+            // Rook takes an undefended pawn
+            "1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1       | e1e5 | 0   | true",
+            "1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1       | e1e5 | 101 | false",
+            // Knight takes a pawn and is lost for it
+            "1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1 | d3e5 | 0 | false",
+            "4k3/8/8/3p4/4P3/8/8/4K3 w - - 0 1                     | e4d5 | 100 | true",
+            // Pawn for pawn is even
+            "4k3/8/2p5/3p4/4P3/8/8/4K3 w - - 0 1                   | e4d5 | 0   | true",
+            "6k1/8/2p5/3p4/4Q3/8/8/4K3 w - - 0 1                   | e4d5 | 0   | false"
+    })
+    void resolvesExchanges(String fen, String uci, int threshold, boolean expected) {
+        Board board = FenUtils.parse(fen);
+        assertEquals(expected, StaticExchange.atLeast(board, find(board, uci), threshold));
+    }
+
+    static int find(Board board, String uci) {
+        MoveList moves = new MoveList();
+        board.generateLegalMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            if (Move.toString(moves.get(i)).equals(uci)) {
+                return moves.get(i);
+            }
+        }
+        throw new IllegalArgumentException("Illegal move " + uci);
+    }
+}
@@ -0,0 +1,116 @@
+package minhcrafters.chess.game.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Runs against a shell script that speaks just enough UCI, so no real engine is needed
+class UciEngineTest {
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    @TempDir
+    Path dir;
+    private Path spawns;
+    private UciEnginePool pool;
+
+    @BeforeEach
+    void writeFakeEngine() throws IOException {
+        assumeFalse(System.getProperty("os.name").startsWith("Windows"), "the fake engine is a shell script");
+        spawns = dir.resolve("spawns.log");
+        Path script = dir.resolve("engine.sh");
+        // Answers every go after a short think, except a go with wtime 7, which it never answers
+        Files.writeString(script, "#!/bin/sh\n"
+                + "echo $$ >> '" + spawns + "'\n"
+                + "while read line; do\n"
+                + "  case \"$line\" in\n"
+                + "    uci) echo 'id name fake'; echo uciok;;\n"
+                + "    isready) echo readyok;;\n"
+                + "    'go wtime 7 '*) ;;\n"
+                + "    go*) sleep 0.2; echo 'info depth 1 score cp 10'; echo 'bestmove e2e4 ponder e7e5';;\n"
+                + "    quit) exit 0;;\n"
+                + "  esac\n"
+                + "done\n");
+        assertTrue(script.toFile().setExecutable(true));
+        pool = new UciEnginePool(script.toString(), 2, 60);
+    }
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void searchesShareTheProcessesOfThePool() throws Exception {
+        List<CompletableFuture<String>> moves = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            moves.add(new UciEngine(pool, UUID.randomUUID()).getBestMove(START, 1_000, 1_000, 0, 0));
+        }
+        for (CompletableFuture<String> move : moves) {
+            assertEquals("e2e4", move.get(10, TimeUnit.SECONDS));
+        }
+        assertTrue(Files.readAllLines(spawns).size() <= pool.getSize());
+        assertTrue(pool.getIdleCount() <= pool.getSize());
+    }
+
+    @Test
+    void closingCutsTheSearchShort() throws Exception {
+        UciEngine engine = new UciEngine(pool, UUID.randomUUID());
+        CompletableFuture<String> move = engine.getBestMove(START, 1_000, 1_000, 0, 0);
+        Thread.sleep(50);
+        engine.close();
+        assertNull(move.get(10, TimeUnit.SECONDS));
+        assertNull(engine.getBestMove(START, 1_000, 1_000, 0, 0).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void silentEngineTimesOut() throws Exception {
+        UciProcess process = pool.lease().get(10, TimeUnit.SECONDS);
+        CompletableFuture<String> move = process.bestMove(START, 7, 7, 0, 0, 300);
+        ExecutionException error = assertThrows(ExecutionException.class, () -> move.get(10, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof TimeoutException);
+        pool.release(process, false);
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    void deadIdleProcessIsReplaced() throws Exception {
+        UciProcess first = pool.lease().get(10, TimeUnit.SECONDS);
+        pool.release(first, true);
+        assertEquals(1, pool.getIdleCount());
+
+        // Kill the engine behind the pool's back, as a crash would
+        long pid = Long.parseLong(Files.readAllLines(spawns).get(0).trim());
+        ProcessHandle.of(pid).ifPresent(ProcessHandle::destroyForcibly);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (first.isAlive() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        UciProcess second = pool.lease().get(10, TimeUnit.SECONDS);
+        assertNotSame(first, second);
+        assertEquals("e2e4", second.bestMove(START, 1_000, 1_000, 0, 0, 5_000).get(10, TimeUnit.SECONDS));
+        pool.release(second, true);
+        assertEquals(2, Files.readAllLines(spawns).size());
+    }
+}
@@ -0,0 +1,59 @@
+package minhcrafters.chess.game.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import minhcrafters.chess.game.Board;
+import minhcrafters.chess.game.Piece;
+
+class FenUtilsTest {
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+            "8/8/8/2k5/2pP4/8/B7/4K3 b - d3 0 3",
+            "4k3/8/8/8/8/8/8/4RK2 b - - 12 40"
+    })
+    void roundTrips(String fen) {
+        assertEquals(fen, FenUtils.getFen(FenUtils.parse(fen), FenUtils.parseFullmoveNumber(fen)));
+    }
+
+    @Test
+    void dropsCastlingRightsWithoutKingOrRook() {
+        Board board = FenUtils.parse("4k3/8/8/8/8/8/8/4K2R w KQkq - 0 1");
+        assertEquals(Board.WHITE_KINGSIDE, board.getCastlingRights());
+        assertEquals(Piece.PieceColor.WHITE, board.getSideToMove());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "8/8/8 w - - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBN w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - -1 1",
+            "8/8/8/8/8/8/8/4K3 w - - 0 1",
+            // Pawns on the first or last rank
+            "4k2P/8/8/8/8/8/8/4K3 w - - 0 1",
+            "4k3/8/8/8/8/8/8/p3K3 w - - 0 1",
+            "P3k3/8/8/8/8/8/8/4K3 b - - 0 1",
+            "4k3/8/8/8/8/8/8/4K2p b - - 0 1",
+            // En passant target occupied, so d5e6 would be generated twice
+            "8/8/4k3/3Pp3/8/8/8/4K3 w - e6 0 1",
+            // No pawn in front of the target
+            "4k3/8/8/3P4/8/8/8/4K3 w - e6 0 1",
+            // The pawn's starting square is occupied
+            "4k3/4p3/8/3Pp3/8/8/8/4K3 w - e6 0 1",
+            // En passant target on the mover's own side of the board
+            "4k3/8/8/8/4P3/8/8/4K3 w - e3 0 1",
+            // The side not to move is in check, so Re1xe8 would take the king
+            "4k3/8/8/8/8/8/8/4RK2 w - - 0 1"
+    })
+    void rejectsInvalidPositions(String fen) {
+        assertThrows(IllegalArgumentException.class, () -> FenUtils.parse(fen));
+    }
+}
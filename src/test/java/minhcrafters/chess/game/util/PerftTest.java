@@ -0,0 +1,29 @@
+package minhcrafters.chess.game.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import minhcrafters.chess.game.Board;
+
+// Node counts from the Chess Programming Wiki's perft results page
+class PerftTest {
+    @ParameterizedTest(name = "{0} depth {2}")
+    @CsvSource(delimiter = '|', value = {
+            "start       | rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1              | 5 | 4865609",
+            "kiwipete    | r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1 | 4 | 4085603",
+            "position 3  | 8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1                         | 6 | 11030083",
+            "position 4  | r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1    | 5 | 15833292",
+            "position 4b | r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1    | 5 | 15833292",
+            "position 5  | rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8           | 4 | 2103487",
+            "position 6  | r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10 | 4 | 3894594",
+            // Taking en passant would expose the king along the rank
+            "discovered  | 8/8/8/2k5/2pP4/8/B7/4K3 b - d3 0 3                                | 1 | 8"
+    })
+    void matchesKnownNodeCounts(String name, String fen, int depth, long nodes) {
+        Board board = FenUtils.parse(fen);
+        assertEquals(nodes, Perft.perft(board, depth));
+        assertEquals(fen, FenUtils.getFen(board, FenUtils.parseFullmoveNumber(fen)));
+    }
+}